@@ -0,0 +1,83 @@
+package dev.lukebemish.testingutils.benchmarks;
+
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.EngineFilter;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DiscoveryBenchmarks {
+    @Param({"10000"})
+    public int classes;
+
+    @Param({"true", "false"})
+    public boolean index;
+
+    private Path workload;
+    private Launcher launcher;
+    private URLClassLoader loader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workload = Workloads.layerTests(1, 1, 1, classes);
+        launcher = LauncherFactory.create();
+    }
+
+    @Setup(Level.Invocation)
+    public void createLoader() {
+        loader = Workloads.loader(workload.resolve(Workloads.CLASSES));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeLoader() throws IOException {
+        loader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Workloads.delete(workload);
+    }
+
+    @Benchmark
+    public TestPlan discover() {
+        var request = LauncherDiscoveryRequestBuilder.request()
+            .selectors(DiscoverySelectors.selectClasspathRoots(Set.of(workload.resolve(Workloads.CLASSES))))
+            .filters(EngineFilter.includeEngines("module-layer-framework"))
+            .configurationParameter("dev.lukebemish.testingutils.framework.modulelayer.discovery.index", Boolean.toString(index))
+            .build();
+        var thread = Thread.currentThread();
+        var previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return launcher.discover(request);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dev.lukebemish.testingutils.benchmarks;
+
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.EngineFilter;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LayerBenchmarks {
+    private static final String PREFIX = "dev.lukebemish.testingutils.framework.modulelayer.";
+
+    @Param({"8"})
+    public int layers;
+
+    @Param({"1", "4"})
+    public int modules;
+
+    @Param({"4"})
+    public int tests;
+
+    private Path workload;
+    private URLClassLoader loader;
+    private Launcher launcher;
+    private Path cache;
+    private Path precompiled;
+    private int precompiledCount;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workload = Workloads.layerTests(layers, modules, tests, 0);
+        loader = Workloads.loader(workload.resolve(Workloads.CLASSES));
+        launcher = LauncherFactory.create();
+        cache = Files.createTempDirectory("testingutils-benchmark-cache");
+        precompiled = Files.createTempDirectory("testingutils-benchmark-precompiled");
+        var summary = run(Map.of(PREFIX + "cache.directory", cache.toString()));
+        var expected = (long) layers * modules * tests;
+        if (summary.getTotalFailureCount() != 0 || summary.getTestsSucceededCount() != expected) {
+            throw new IllegalStateException("Expected " + expected + " generated tests to pass, but " + summary.getTestsSucceededCount() + " passed and " + summary.getTotalFailureCount() + " failed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        loader.close();
+        Workloads.delete(workload);
+        Workloads.delete(cache);
+        Workloads.delete(precompiled);
+    }
+
+    private TestExecutionSummary run(Map<String, String> configuration) {
+        var request = LauncherDiscoveryRequestBuilder.request()
+            .selectors(DiscoverySelectors.selectClass(loader, Workloads.LAYER_TEST_CLASS))
+            .filters(EngineFilter.includeEngines("module-layer-framework"))
+            .configurationParameters(configuration)
+            .build();
+        var listener = new SummaryGeneratingListener();
+        launcher.execute(request, listener);
+        return listener.getSummary();
+    }
+
+    @Benchmark
+    public TestExecutionSummary compile() {
+        var output = precompiled.resolve(Integer.toString(precompiledCount++));
+        return run(Map.of(PREFIX + "precompile.output", output.toString()));
+    }
+
+    @Benchmark
+    public TestExecutionSummary define() {
+        return run(Map.of(PREFIX + "cache.directory", cache.toString()));
+    }
+
+    @Benchmark
+    public TestExecutionSummary full() {
+        return run(Map.of());
+    }
+}
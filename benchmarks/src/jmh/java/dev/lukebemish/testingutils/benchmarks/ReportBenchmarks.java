@@ -0,0 +1,63 @@
+package dev.lukebemish.testingutils.benchmarks;
+
+import dev.lukebemish.testingutils.cli.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportBenchmarks {
+    @Param({"1000", "10000"})
+    public int events;
+
+    @Param({"10", "50"})
+    public int stackDepth;
+
+    private Path workload;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workload = Workloads.report(events, stackDepth);
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(out);
+        Workloads.delete(workload);
+    }
+
+    @Benchmark
+    public void annotate() throws Exception {
+        new Main().annotate(workload, Workloads.REPORT_SOURCE_ROOTS, List.of(workload.resolve(Workloads.REPORT)));
+    }
+
+    @Benchmark
+    public void summary() throws Exception {
+        new Main().simplehtml(workload.resolve("summary.html"), List.of(workload.resolve(Workloads.REPORT)));
+    }
+}
@@ -0,0 +1,169 @@
+package dev.lukebemish.testingutils.benchmarks;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+final class Workloads {
+    static final String LAYER_TEST_CLASS = "bench.LayerTests";
+    static final String CLASSES = "classes";
+    static final String REPORT = "report.xml";
+    static final String REPORT_SOURCE_ROOTS = "src/test/java";
+
+    private Workloads() {}
+
+    static Path layerTests(int layers, int modules, int tests, int plainClasses) throws IOException {
+        var root = Files.createTempDirectory("testingutils-benchmark");
+        var sources = root.resolve("src");
+        var source = new StringBuilder();
+        source.append("package bench;\n\n");
+        source.append("import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;\n");
+        source.append("import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;\n\n");
+        source.append("public class LayerTests {\n");
+        for (int layer = 0; layer < layers; layer++) {
+            source.append("    @LayerTest\n");
+            source.append("    public LayerBuilder layer").append(layer).append("() {\n");
+            source.append("        return LayerBuilder.create()");
+            for (int module = 0; module < modules; module++) {
+                var name = "layer" + layer + ".module" + module;
+                source.append("\n            .withModule(\"").append(name).append("\", module -> module\n");
+                source.append("                .test(\"").append(name).append(".Tests\", \"\"\"\n");
+                for (int test = 0; test < tests; test++) {
+                    source.append("                    @Test\n");
+                    source.append("                    void test").append(test).append("() {\n");
+                    source.append("                        assertEquals(").append(test).append(", Integer.parseInt(\"").append(test).append("\"));\n");
+                    source.append("                    }\n");
+                }
+                source.append("                    \"\"\"))");
+            }
+            source.append(";\n    }\n\n");
+        }
+        source.append("}\n");
+        write(sources.resolve("bench/LayerTests.java"), source.toString());
+        for (int i = 0; i < plainClasses; i++) {
+            var packageName = "bench.plain" + (i / 100);
+            write(sources.resolve(packageName.replace('.', '/')).resolve("Plain" + i + ".java"),
+                "package " + packageName + ";\n\npublic class Plain" + i + " {\n    public int value() {\n        return " + i + ";\n    }\n}\n");
+        }
+        compile(sources, root.resolve(CLASSES));
+        return root;
+    }
+
+    private static void compile(Path sources, Path output) throws IOException {
+        List<String> files;
+        try (Stream<Path> walk = Files.walk(sources)) {
+            files = walk.filter(path -> path.toString().endsWith(".java")).map(Path::toString).toList();
+        }
+        Files.createDirectories(output);
+        var classPath = System.getProperty("java.class.path");
+        var args = new ArrayList<>(List.of(
+            "-d", output.toString(),
+            "-classpath", classPath,
+            "-processorpath", classPath,
+            "-processor", "dev.lukebemish.testingutils.framework.modulelayer.internal.LayerTestIndexProcessor"
+        ));
+        args.addAll(files);
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, args.toArray(String[]::new)) != 0) {
+            throw new IllegalStateException("Could not compile benchmark workload in " + sources);
+        }
+    }
+
+    static URLClassLoader loader(Path classes) {
+        try {
+            return new URLClassLoader(new URL[] {classes.toUri().toURL()}, Workloads.class.getClassLoader());
+        } catch (MalformedURLException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Path report(int events, int stackDepth) throws IOException {
+        var root = Files.createTempDirectory("testingutils-benchmark");
+        for (int i = 0; i < stackDepth; i++) {
+            var lines = new StringBuilder("package bench;\n\npublic class Frame" + i + " {\n");
+            for (int line = 0; line < 50; line++) {
+                lines.append("    // line ").append(line).append('\n');
+            }
+            lines.append("}\n");
+            write(root.resolve(REPORT_SOURCE_ROOTS).resolve("bench/Frame" + i + ".java"), lines.toString());
+        }
+        var xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<e:events xmlns=\"https://schemas.opentest4j.org/reporting/core/0.2.0\"");
+        xml.append(" xmlns:e=\"https://schemas.opentest4j.org/reporting/events/0.2.0\"");
+        xml.append(" xmlns:java=\"https://schemas.opentest4j.org/reporting/java/0.2.0\"");
+        xml.append(" xmlns:junit=\"https://schemas.junit.org/open-test-reporting\"");
+        xml.append(" xmlns:testingutils=\"https://schemas.lukebemish.dev/testingutils/0.1.0\">\n");
+        xml.append("  <infrastructure><operatingSystem>Linux</operatingSystem><java:javaVersion>21</java:javaVersion>");
+        xml.append("<testingutils:id>:benchmark:test</testingutils:id></infrastructure>\n");
+        xml.append("  <e:started id=\"0\" name=\"Benchmark Engine\" time=\"2024-01-01T00:00:00Z\"><metadata><junit:type>CONTAINER</junit:type></metadata></e:started>\n");
+        var classes = Math.max(1, events / 10);
+        for (int c = 0; c < classes; c++) {
+            var classId = 1 + c;
+            xml.append("  <e:started id=\"").append(classId).append("\" name=\"Class").append(c).append("\" parentId=\"0\" time=\"2024-01-01T00:00:00Z\"><metadata><junit:type>CONTAINER</junit:type></metadata></e:started>\n");
+        }
+        for (int i = 0; i < events; i++) {
+            var id = 1 + classes + i;
+            var parent = 1 + (i % classes);
+            xml.append("  <e:started id=\"").append(id).append("\" name=\"test").append(i).append("()\" parentId=\"").append(parent).append("\" time=\"2024-01-01T00:00:00Z\"><metadata><junit:type>TEST</junit:type></metadata></e:started>\n");
+            xml.append("  <e:reported id=\"").append(id).append("\" time=\"2024-01-01T00:00:00Z\"><attachments><data time=\"2024-01-01T00:00:00Z\">");
+            xml.append("<entry key=\"testingutils.layer.compile-millis\">").append(i % 500).append("</entry></data></attachments></e:reported>\n");
+            xml.append("  <e:finished id=\"").append(id).append("\" time=\"2024-01-01T00:00:01Z\"><result status=\"");
+            if (i % 4 == 0) {
+                xml.append("FAILED\"><java:throwable type=\"org.opentest4j.AssertionFailedError\">org.opentest4j.AssertionFailedError: expected: &lt;1&gt; but was: &lt;2&gt;\n");
+                for (int frame = 0; frame < stackDepth; frame++) {
+                    xml.append(String.format(Locale.ROOT, "\tat bench.Frame%d.run(Frame%d.java:%d)\n", frame, frame, 1 + (frame * 7 + i) % 50));
+                }
+                xml.append("</java:throwable></result></e:finished>\n");
+            } else {
+                xml.append("SUCCESSFUL\"/></e:finished>\n");
+            }
+        }
+        for (int c = 0; c < classes; c++) {
+            xml.append("  <e:finished id=\"").append(1 + c).append("\" time=\"2024-01-01T00:00:01Z\"><result status=\"SUCCESSFUL\"/></e:finished>\n");
+        }
+        xml.append("  <e:finished id=\"0\" time=\"2024-01-01T00:00:01Z\"><result status=\"SUCCESSFUL\"/></e:finished>\n");
+        xml.append("</e:events>\n");
+        write(root.resolve(REPORT), xml.toString());
+        return root;
+    }
+
+    private static void write(Path path, String contents) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, contents);
+    }
+
+    static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exception) throws IOException {
+                if (exception != null) {
+                    throw exception;
+                }
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
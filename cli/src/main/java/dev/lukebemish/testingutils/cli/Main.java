@@ -88,9 +88,26 @@ public void annotate(
                 var name = event.getAttribute("name");
                 eventNames.put(id, name);
             }
+            Map<Integer, Set<String>> mappedClasses = new HashMap<>();
+            for (var event : getChildrenByNameNS(element, "reported", Namespace.REPORTING_EVENTS.getUri())) {
+                var sourceLines = layerMetrics(event).get("source-lines");
+                if (sourceLines != null) {
+                    var classes = mappedClasses.computeIfAbsent(Integer.parseInt(event.getAttribute("id")), k -> new HashSet<>());
+                    for (var mapping : sourceLines.split(";")) {
+                        classes.add(mapping.substring(0, mapping.indexOf('=')));
+                    }
+                }
+            }
             var finished = getChildrenByNameNS(element, "finished", Namespace.REPORTING_EVENTS.getUri());
             for (var event : finished) {
                 var id = Integer.parseInt(event.getAttribute("id"));
+                Set<String> mapped = Set.of();
+                for (Integer currentId = id; currentId != null; currentId = eventParents.get(currentId)) {
+                    if (mappedClasses.containsKey(currentId)) {
+                        mapped = mappedClasses.get(currentId);
+                        break;
+                    }
+                }
                 var results = getChildrenByNameNS(event, "result", Namespace.REPORTING_CORE.getUri());
                 if (!results.isEmpty()) {
                     var result = results.getFirst();
@@ -101,6 +118,7 @@ public void annotate(
                             var throwable = throwables.getFirst();
                             var stackTrace = getCharacterDataFromElement(throwable);
                             int lastLineOffset = 0;
+                            var lastClass = "";
                             boolean lastWasLayerBuilderExecute = false;
                             for (var line : (Iterable<String>) stackTrace.lines()::iterator) {
                                 // We annotate every location involved in the stack trace
@@ -125,7 +143,7 @@ public void annotate(
                                             var relativePath = codeLocation.resolve(root).resolve(relative);
                                             if (Files.exists(relativePath)) {
                                                 var actualLineNumber = Integer.parseInt(lineNumber);
-                                                if (lastWasLayerBuilderExecute) {
+                                                if (lastWasLayerBuilderExecute && !mapped.contains(lastClass)) {
                                                     var sourceLines = Files.readAllLines(relativePath);
                                                     if (sourceLines.size() >= actualLineNumber) {
                                                         var lineValue = sourceLines.get(actualLineNumber - 1).trim();
@@ -160,6 +178,8 @@ public void annotate(
                                             lastWasLayerBuilderExecute = false;
                                         }
                                         lastLineOffset = Integer.parseInt(lineNumber);
+                                        var nested = className.indexOf('$');
+                                        lastClass = matcher.group(2) + "/" + (nested == -1 ? className : className.substring(0, nested));
                                     }
                                 }
                             }
@@ -301,6 +321,14 @@ public void simplehtml(
 
                 eventNames.put(id, name);
             }
+            Map<Integer, String> compileTimes = new HashMap<>();
+            var reported = getChildrenByNameNS(element, "reported", Namespace.REPORTING_EVENTS.getUri());
+            for (var event : reported) {
+                var compileMillis = layerMetrics(event).get("compile-millis");
+                if (compileMillis != null) {
+                    compileTimes.put(Integer.parseInt(event.getAttribute("id")), compileMillis);
+                }
+            }
             var finished = getChildrenByNameNS(element, "finished", Namespace.REPORTING_EVENTS.getUri());
             for (var event : finished) {
                 var id = Integer.parseInt(event.getAttribute("id"));
@@ -323,6 +351,10 @@ public void simplehtml(
                         default -> node.status = "❓";
                     }
                     node.text = eventNames.get(id);
+                    var compileTime = compileTimes.get(id);
+                    if (compileTime != null) {
+                        node.text += " (compiled in " + compileTime + " ms)";
+                    }
                     var parent = eventParents.get(id);
                     if (parent != null) {
                         var parentNode = eventNodes.get(parent);
@@ -363,6 +395,32 @@ public void simplehtml(
         Files.writeString(output, html);
     }
 
+    private static final String LAYER_ENTRY_PREFIX = "testingutils.layer.";
+
+    private static Map<String, String> layerMetrics(Element reported) {
+        var metrics = new HashMap<String, String>();
+        var layers = getChildrenByNameNS(reported, "layer", TESTINGUTILS.getUri());
+        if (!layers.isEmpty()) {
+            var attributes = layers.getFirst().getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                var attribute = attributes.item(i);
+                metrics.put(attribute.getNodeName(), attribute.getNodeValue());
+            }
+            return metrics;
+        }
+        for (var attachments : getChildrenByNameNS(reported, "attachments", Namespace.REPORTING_CORE.getUri())) {
+            for (var data : getChildrenByNameNS(attachments, "data", Namespace.REPORTING_CORE.getUri())) {
+                for (var entry : getChildrenByNameNS(data, "entry", Namespace.REPORTING_CORE.getUri())) {
+                    var key = entry.getAttribute("key");
+                    if (key.startsWith(LAYER_ENTRY_PREFIX)) {
+                        metrics.put(key.substring(LAYER_ENTRY_PREFIX.length()), entry.getTextContent());
+                    }
+                }
+            }
+        }
+        return metrics;
+    }
+
     private static String getCharacterDataFromElement(Element e) {
         Node child = e.getFirstChild();
         if (child instanceof CharacterData characterData) {
@@ -42,12 +42,20 @@ public static void main(String[] args) {
             }
         }
 
-        LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+        var precompile = !System.getProperty("dev.lukebemish.testingutils.framework.modulelayer.precompile.output", "").isBlank();
+        if (precompile) {
+            filters.add(includeEngines("module-layer-framework"));
+        }
+
+        var requestBuilder = LauncherDiscoveryRequestBuilder.request()
             .selectors(selectors)
-            .filters(filters.toArray(Filter[]::new))
-            .configurationParameter("junit.platform.reporting.open.xml.enabled", "true")
-            .configurationParameter("junit.platform.reporting.output.dir", "results")
-            .build();
+            .filters(filters.toArray(Filter[]::new));
+        if (!precompile) {
+            requestBuilder
+                .configurationParameter("junit.platform.reporting.open.xml.enabled", "true")
+                .configurationParameter("junit.platform.reporting.output.dir", "results");
+        }
+        LauncherDiscoveryRequest request = requestBuilder.build();
 
         try (LauncherSession session = LauncherFactory.openSession()) {
             TestPlan testPlan = session.getLauncher().discover(request);
@@ -77,6 +85,10 @@ public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult
             session.getLauncher().execute(testPlan);
             summaryGeneratingService.getSummary().printTo(new PrintWriter(System.out));
 
+            if (precompile) {
+                return;
+            }
+
             if (hasFailures.get()) {
                 throw new RuntimeException("Some tests failed. See the output above for details.");
             }
@@ -0,0 +1,215 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class CompileDaemon {
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int COMPILERS_PER_WORKER = 4;
+
+    private final Path socket;
+    private final Path log;
+    private final ServerSocketChannel server;
+    private final ExecutorService workers;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+    private final ThreadLocal<Map<List<Path>, Warm>> compilers = ThreadLocal.withInitial(() -> new LinkedHashMap<>(COMPILERS_PER_WORKER, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Path>, Warm> eldest) {
+            if (size() > COMPILERS_PER_WORKER) {
+                close(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    });
+
+    // Archives are only reopened once changed; directories are read by javac as it goes, so are always current
+    private record Warm(List<Long> stamps, LayerCompiler compiler) {}
+
+    private CompileDaemon(Path socket, ServerSocketChannel server) {
+        this.socket = socket;
+        this.log = Paths.get(socket + ".log");
+        this.server = server;
+        var threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            var thread = new Thread(runnable, "testingutils-compile-daemon-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: CompileDaemon <socket>");
+            System.exit(2);
+        }
+        var socket = Paths.get(args[0]).toAbsolutePath();
+        var address = UnixDomainSocketAddress.of(socket);
+        if (Files.exists(socket)) {
+            try {
+                SocketChannel.open(address).close();
+                return;
+            } catch (IOException e) {
+                Files.deleteIfExists(socket);
+            }
+        }
+        var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address);
+        try {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException ignored) {
+            // Not a POSIX file system; the socket is left as created
+        }
+        new CompileDaemon(socket, server).run();
+    }
+
+    private void run() throws IOException {
+        var idle = new Thread(this::exitWhenIdle, "testingutils-compile-daemon-idle");
+        idle.setDaemon(true);
+        idle.start();
+        log("Compile daemon listening on " + socket, null);
+        try {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                lastUsed = System.nanoTime();
+                active.incrementAndGet();
+                workers.execute(() -> {
+                    try {
+                        handle(channel);
+                    } finally {
+                        lastUsed = System.nanoTime();
+                        active.decrementAndGet();
+                    }
+                });
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    private void exitWhenIdle() {
+        while (true) {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (active.get() == 0 && System.nanoTime() - lastUsed > TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS)) {
+                log("Compile daemon exiting after being idle for " + IDLE_TIMEOUT_MILLIS + "ms", null);
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    log("Could not close " + socket, e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        List<String> modules = List.of();
+        try (channel) {
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            CompileProtocol.Request request;
+            try {
+                request = CompileProtocol.readRequest(in);
+            } catch (EOFException e) {
+                return;
+            } catch (IOException e) {
+                log("Could not read a compilation request", e);
+                CompileProtocol.writeFailed(out, String.valueOf(e.getMessage()));
+                return;
+            }
+            modules = List.copyOf(request.sources().keySet());
+            var javaHome = System.getProperty("java.home");
+            if (!request.javaHome().equals(javaHome)) {
+                CompileProtocol.writeFailed(out, "Compile daemon runs on " + javaHome + " but " + request.javaHome() + " was requested");
+                return;
+            }
+            try {
+                var outputs = compiler(request.compileModulePath()).compile(request.sources(), request.compileModulePath(), request.upstream(), request.options());
+                CompileProtocol.writeCompiled(out, outputs);
+            } catch (LayerCompilationException e) {
+                CompileProtocol.writeCompilationFailed(out, e);
+            } catch (IOException | RuntimeException e) {
+                log("Could not compile modules " + modules, e);
+                CompileProtocol.writeFailed(out, e.toString());
+            }
+        } catch (IOException e) {
+            log("Could not respond to the compilation of modules " + modules, e);
+        }
+    }
+
+    private LayerCompiler compiler(List<Path> modulePath) throws IOException {
+        var stamps = new ArrayList<Long>();
+        for (var path : modulePath) {
+            if (Files.isRegularFile(path)) {
+                stamps.add(Files.size(path));
+                stamps.add(Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+        var compilers = this.compilers.get();
+        var warm = compilers.get(modulePath);
+        if (warm == null || !warm.stamps().equals(stamps)) {
+            if (warm != null) {
+                close(warm);
+            }
+            warm = new Warm(stamps, new LayerCompiler());
+            compilers.put(modulePath, warm);
+        }
+        return warm.compiler();
+    }
+
+    private void close(Warm warm) {
+        try {
+            warm.compiler().close();
+        } catch (IOException e) {
+            log("Could not close a compiler", e);
+        }
+    }
+
+    private synchronized void log(String message, @Nullable Throwable failure) {
+        try (var writer = new PrintWriter(Files.newBufferedWriter(log, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            writer.println(Instant.now() + " " + message);
+            if (failure != null) {
+                failure.printStackTrace(writer);
+            }
+        } catch (IOException ignored) {
+            // Nowhere left to report it
+        }
+    }
+}
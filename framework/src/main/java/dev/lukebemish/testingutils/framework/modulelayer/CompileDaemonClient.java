@@ -0,0 +1,154 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.module.ResolvedModule;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+final class CompileDaemonClient {
+    private static final long START_TIMEOUT_MILLIS = 10_000;
+    private static final long START_POLL_MILLIS = 50;
+    private static final Set<PosixFilePermission> PRIVATE = PosixFilePermissions.fromString("rwx------");
+
+    private final Path socket;
+    private final UnixDomainSocketAddress address;
+    private volatile boolean unavailable;
+    private @Nullable Process started;
+
+    CompileDaemonClient(Path socket) {
+        this.socket = socket.toAbsolutePath();
+        this.address = UnixDomainSocketAddress.of(this.socket);
+    }
+
+    @Nullable Map<String, Map<String, byte[]>> compile(Map<String, Map<String, String>> sources, List<Path> compileModulePath, List<MemoryModule> upstream, List<String> options) {
+        if (unavailable) {
+            return null;
+        }
+        var absoluteModulePath = compileModulePath.stream().map(Path::toAbsolutePath).toList();
+        var request = new CompileProtocol.Request(System.getProperty("java.home"), sources, absoluteModulePath, upstream, options);
+        try (var channel = connect()) {
+            checkOwner();
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            CompileProtocol.writeRequest(out, request);
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            return CompileProtocol.readResponse(in);
+        } catch (IOException e) {
+            unavailable = true;
+            return null;
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        try {
+            return SocketChannel.open(address);
+        } catch (IOException e) {
+            return start();
+        }
+    }
+
+    // Whoever owns the socket sees the sources of every layer sent to it
+    private void checkOwner() throws IOException {
+        var user = FileSystems.getDefault().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        var owner = Files.getOwner(socket, LinkOption.NOFOLLOW_LINKS);
+        if (!owner.equals(user)) {
+            throw new IOException("Compile daemon socket " + socket + " is owned by " + owner.getName() + " rather than " + user.getName());
+        }
+    }
+
+    private synchronized SocketChannel start() throws IOException {
+        var process = started;
+        if (process == null) {
+            var directory = socket.getParent();
+            if (directory != null && !Files.isDirectory(directory)) {
+                try {
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PRIVATE));
+                } catch (UnsupportedOperationException e) {
+                    Files.createDirectories(directory);
+                }
+            }
+            var command = command(socket);
+            if (command == null) {
+                throw new IOException("The compile daemon can only be started when the framework is on the module path");
+            }
+            process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File(socket + ".log")))
+                .start();
+            process.getOutputStream().close();
+            started = process;
+        }
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT_MILLIS);
+        while (true) {
+            try {
+                return SocketChannel.open(address);
+            } catch (IOException e) {
+                // A daemon that exits straight away found another one already listening, which should be reachable
+                if (!process.isAlive() && process.exitValue() != 0) {
+                    throw new IOException("Compile daemon exited with code " + process.exitValue() + "; see " + socket + ".log", e);
+                } else if (System.nanoTime() > deadline) {
+                    throw new IOException("Compile daemon did not start listening on " + socket + " within " + START_TIMEOUT_MILLIS + "ms", e);
+                }
+            }
+            try {
+                Thread.sleep(START_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the compile daemon to start");
+            }
+        }
+    }
+
+    private static @Nullable List<String> command(Path socket) {
+        var module = CompileDaemon.class.getModule();
+        var layer = module.getLayer();
+        if (!module.isNamed() || layer == null) {
+            return null;
+        }
+        var locations = new LinkedHashSet<String>();
+        var visited = new HashSet<ResolvedModule>();
+        var pending = new ArrayDeque<ResolvedModule>();
+        layer.configuration().findModule(module.getName()).ifPresent(pending::add);
+        while (!pending.isEmpty()) {
+            var next = pending.poll();
+            if (!visited.add(next)) {
+                continue;
+            }
+            next.reference().location()
+                .filter(location -> "file".equals(location.getScheme()))
+                .ifPresent(location -> locations.add(Paths.get(location).toString()));
+            pending.addAll(next.reads());
+        }
+        var command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("--module-path");
+        command.add(String.join(File.pathSeparator, locations));
+        command.add("-m");
+        command.add(module.getName() + "/" + CompileDaemon.class.getName());
+        command.add(socket.toString());
+        return command;
+    }
+}
@@ -0,0 +1,179 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Strings are length-prefixed UTF-8, as sources may be longer than DataOutput.writeUTF allows
+final class CompileProtocol {
+    static final int VERSION = 1;
+
+    static final byte COMPILED = 0;
+    static final byte COMPILATION_FAILED = 1;
+    static final byte FAILED = 2;
+
+    private CompileProtocol() {}
+
+    record Request(String javaHome, Map<String, Map<String, String>> sources, List<Path> compileModulePath, List<MemoryModule> upstream, List<String> options) {}
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(VERSION);
+        writeString(out, request.javaHome());
+        out.writeInt(request.sources().size());
+        for (var module : request.sources().entrySet()) {
+            writeString(out, module.getKey());
+            out.writeInt(module.getValue().size());
+            for (var source : module.getValue().entrySet()) {
+                writeString(out, source.getKey());
+                writeString(out, source.getValue());
+            }
+        }
+        writeStrings(out, request.compileModulePath().stream().map(Path::toString).toList());
+        out.writeInt(request.upstream().size());
+        for (var module : request.upstream()) {
+            writeString(out, module.name());
+            writeEntries(out, module.entries());
+        }
+        writeStrings(out, request.options());
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        var version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compile request version " + version + ", expected " + VERSION);
+        }
+        var javaHome = readString(in);
+        var moduleCount = in.readInt();
+        var sources = new LinkedHashMap<String, Map<String, String>>();
+        for (int i = 0; i < moduleCount; i++) {
+            var moduleName = readString(in);
+            var sourceCount = in.readInt();
+            var moduleSources = new LinkedHashMap<String, String>();
+            for (int j = 0; j < sourceCount; j++) {
+                moduleSources.put(readString(in), readString(in));
+            }
+            sources.put(moduleName, moduleSources);
+        }
+        var compileModulePath = readStrings(in).stream().map(Paths::get).toList();
+        var upstreamCount = in.readInt();
+        var upstream = new ArrayList<MemoryModule>();
+        for (int i = 0; i < upstreamCount; i++) {
+            upstream.add(new MemoryModule(readString(in), readEntries(in)));
+        }
+        return new Request(javaHome, sources, compileModulePath, upstream, readStrings(in));
+    }
+
+    static void writeCompiled(DataOutputStream out, Map<String, Map<String, byte[]>> outputs) throws IOException {
+        out.writeByte(COMPILED);
+        out.writeInt(outputs.size());
+        for (var module : outputs.entrySet()) {
+            writeString(out, module.getKey());
+            writeEntries(out, module.getValue());
+        }
+        out.flush();
+    }
+
+    static void writeCompilationFailed(DataOutputStream out, LayerCompilationException exception) throws IOException {
+        out.writeByte(COMPILATION_FAILED);
+        writeString(out, String.valueOf(exception.getMessage()));
+        out.writeInt(exception.errorsByModule().size());
+        for (var entry : exception.errorsByModule().entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+        out.writeBoolean(exception.attributable());
+        out.flush();
+    }
+
+    static void writeFailed(DataOutputStream out, String message) throws IOException {
+        out.writeByte(FAILED);
+        writeString(out, message);
+        out.flush();
+    }
+
+    static Map<String, Map<String, byte[]>> readResponse(DataInputStream in) throws IOException {
+        var status = in.readByte();
+        switch (status) {
+            case COMPILED -> {
+                var moduleCount = in.readInt();
+                var outputs = new LinkedHashMap<String, Map<String, byte[]>>();
+                for (int i = 0; i < moduleCount; i++) {
+                    outputs.put(readString(in), readEntries(in));
+                }
+                return outputs;
+            }
+            case COMPILATION_FAILED -> {
+                var message = readString(in);
+                var errorCount = in.readInt();
+                var errorsByModule = new LinkedHashMap<String, String>();
+                for (int i = 0; i < errorCount; i++) {
+                    errorsByModule.put(readString(in), readString(in));
+                }
+                throw new LayerCompilationException(message, errorsByModule, in.readBoolean());
+            }
+            case FAILED -> throw new IOException("Compile daemon failed: " + readString(in));
+            default -> throw new IOException("Unknown compile daemon response " + status);
+        }
+    }
+
+    private static void writeEntries(DataOutputStream out, Map<String, byte[]> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (var entry : entries.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    private static Map<String, byte[]> readEntries(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        var entries = new LinkedHashMap<String, byte[]>();
+        for (int i = 0; i < count; i++) {
+            var name = readString(in);
+            entries.put(name, in.readNBytes(length(in)));
+        }
+        return entries;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (var value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        var values = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(length(in)), StandardCharsets.UTF_8);
+    }
+
+    private static int length(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Malformed compile daemon message; negative length " + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.platform.engine.ConfigurationParameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+record EngineConfiguration(
+    boolean diskOutput,
+    Path workingDirectory,
+    @Nullable Path cacheDirectory,
+    long cacheMaxSize,
+    @Nullable Path precompiledDirectory,
+    @Nullable Path precompileOutput,
+    int compileParallelism,
+    TestThreads testThreads,
+    int testConcurrency,
+    int prefetchDepth,
+    boolean leakDetection,
+    @Nullable Path compileDaemon
+) {
+    static final String PREFIX = "dev.lukebemish.testingutils.framework.modulelayer.";
+
+    static final String OUTPUT = PREFIX + "output";
+    static final String WORKING_DIRECTORY = PREFIX + "working.directory";
+    static final String CACHE_DIRECTORY = PREFIX + "cache.directory";
+    static final String CACHE_MAX_SIZE = PREFIX + "cache.max-size";
+    static final String PRECOMPILED_DIRECTORY = PREFIX + "precompiled.directory";
+    static final String PRECOMPILE_OUTPUT = PREFIX + "precompile.output";
+    static final String COMPILE_PARALLELISM = PREFIX + "compile.parallelism";
+    static final String DISCOVERY_INDEX = PREFIX + "discovery.index";
+    static final String TEST_THREADS = PREFIX + "execution.tests.threads";
+    static final String TEST_CONCURRENCY = PREFIX + "execution.tests.max-concurrency";
+    static final String PREFETCH_DEPTH = PREFIX + "execution.prefetch.depth";
+    static final String LEAK_DETECTION = PREFIX + "leaks.detection";
+    static final String COMPILE_DAEMON = PREFIX + "compile.daemon";
+
+    static final String PARALLEL_PREFIX = PREFIX + "execution.parallel.";
+    static final String PARALLEL_ENABLED = "enabled";
+    static final String MODE_DEFAULT = "mode.default";
+    static final String MODE_CLASSES_DEFAULT = "mode.classes.default";
+
+    private static final String DEFAULT_WORKING_DIRECTORY = "module-layer-framework";
+    private static final long DEFAULT_CACHE_MAX_SIZE = 256L * 1024 * 1024;
+    private static final int DEFAULT_TEST_CONCURRENCY = 256;
+
+    static EngineConfiguration from(ConfigurationParameters parameters) {
+        var output = parameters.get(OUTPUT).orElse("memory");
+        var compileParallelism = parameters.get(COMPILE_PARALLELISM).map(value -> switch (value) {
+            case "dynamic" -> Runtime.getRuntime().availableProcessors();
+            default -> Integer.parseInt(value);
+        }).orElse(1);
+        if (compileParallelism < 1) {
+            throw new IllegalArgumentException("Invalid value for " + COMPILE_PARALLELISM + ": " + compileParallelism + ", expected a positive integer or 'dynamic'");
+        }
+        var testConcurrency = parameters.get(TEST_CONCURRENCY, Integer::parseInt).orElse(DEFAULT_TEST_CONCURRENCY);
+        if (testConcurrency < 1) {
+            throw new IllegalArgumentException("Invalid value for " + TEST_CONCURRENCY + ": " + testConcurrency + ", expected a positive integer");
+        }
+        var prefetchDepth = parameters.get(PREFETCH_DEPTH, Integer::parseInt).orElse(0);
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("Invalid value for " + PREFETCH_DEPTH + ": " + prefetchDepth + ", expected a non-negative integer");
+        }
+        return new EngineConfiguration(
+            switch (output) {
+                case "memory" -> false;
+                case "disk" -> true;
+                default -> throw new IllegalArgumentException("Unknown value for " + OUTPUT + ": " + output + ", expected 'memory' or 'disk'");
+            },
+            Paths.get(parameters.get(WORKING_DIRECTORY).filter(s -> !s.isBlank()).orElse(DEFAULT_WORKING_DIRECTORY)),
+            parameters.get(CACHE_DIRECTORY).filter(s -> !s.isBlank()).map(Paths::get).orElse(null),
+            parameters.get(CACHE_MAX_SIZE, Long::parseLong).orElse(DEFAULT_CACHE_MAX_SIZE),
+            parameters.get(PRECOMPILED_DIRECTORY).filter(s -> !s.isBlank()).map(Paths::get).orElse(null),
+            parameters.get(PRECOMPILE_OUTPUT).filter(s -> !s.isBlank()).map(Paths::get).orElse(null),
+            compileParallelism,
+            parameters.get(TEST_THREADS).map(TestThreads::from).orElse(TestThreads.ENGINE),
+            testConcurrency,
+            prefetchDepth,
+            parameters.getBoolean(LEAK_DETECTION).orElse(false),
+            parameters.get(COMPILE_DAEMON).filter(s -> !s.isBlank()).map(value -> switch (value) {
+                case "auto" -> defaultCompileDaemon();
+                default -> Paths.get(value);
+            }).orElse(null)
+        );
+    }
+
+    // The socket lives where only the user can reach it, rather than in the shared temporary directory
+    private static Path defaultCompileDaemon() {
+        var hash = new Fingerprint()
+            .add(System.getProperty("user.name"))
+            .add(System.getProperty("java.home"))
+            .hash();
+        return userDirectory().resolve("testingutils").resolve("compiler-" + hash.substring(0, 16) + ".sock");
+    }
+
+    private static Path userDirectory() {
+        var runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isBlank()) {
+            return Paths.get(runtime);
+        }
+        var cache = System.getenv("XDG_CACHE_HOME");
+        if (cache != null && !cache.isBlank()) {
+            return Paths.get(cache);
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache");
+    }
+}
@@ -0,0 +1,194 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class EngineContext implements AutoCloseable {
+    private final EngineConfiguration configuration;
+    private final @Nullable LayerCompilationCache cache;
+    private final @Nullable ExecutorService compileExecutor;
+    private final @Nullable ExecutorService prefetchExecutor;
+    private final SharedLayers sharedLayers = new SharedLayers();
+    private final ModulePathDigests modulePathDigests = new ModulePathDigests();
+    private final Semaphore testPermits;
+    private final @Nullable LeakDetector leakDetector;
+    private final @Nullable CompileDaemonClient compileDaemon;
+    private @Nullable WorkingDirectory workingDirectory;
+    private final Queue<LayerCompiler> compilers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<LayerCompiler> compiler = ThreadLocal.withInitial(() -> {
+        var created = new LayerCompiler();
+        compilers.add(created);
+        return created;
+    });
+
+    EngineContext(EngineConfiguration configuration) {
+        this.configuration = configuration;
+        this.testPermits = new Semaphore(configuration.testConcurrency());
+        this.leakDetector = configuration.leakDetection() ? new LeakDetector() : null;
+        var compileDaemon = configuration.compileDaemon();
+        this.compileDaemon = compileDaemon == null ? null : new CompileDaemonClient(compileDaemon);
+        var cacheDirectory = configuration.cacheDirectory();
+        var precompiledDirectory = configuration.precompiledDirectory();
+        var precompileOutput = configuration.precompileOutput();
+        if (precompileOutput != null) {
+            this.cache = new LayerCompilationCache(precompileOutput, Long.MAX_VALUE, null);
+        } else if (cacheDirectory != null || precompiledDirectory != null) {
+            this.cache = new LayerCompilationCache(cacheDirectory, configuration.cacheMaxSize(), precompiledDirectory);
+        } else {
+            this.cache = null;
+        }
+        // Prefetched layers must not be compiled on the thread running tests, even without a pool of compilers
+        if (configuration.compileParallelism() > 1 || configuration.prefetchDepth() > 0) {
+            var threadCount = new AtomicInteger();
+            this.compileExecutor = Executors.newFixedThreadPool(configuration.compileParallelism(), runnable -> {
+                var thread = new Thread(runnable, "testingutils-layer-compiler-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.compileExecutor = null;
+        }
+        if (configuration.prefetchDepth() > 0) {
+            this.prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                var thread = new Thread(runnable, "testingutils-layer-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.prefetchExecutor = null;
+        }
+    }
+
+    EngineConfiguration configuration() {
+        return configuration;
+    }
+
+    @Nullable LayerCompilationCache cache() {
+        return cache;
+    }
+
+    SharedLayers sharedLayers() {
+        return sharedLayers;
+    }
+
+    ModulePathDigests modulePathDigests() {
+        return modulePathDigests;
+    }
+
+    @Nullable LeakDetector leakDetector() {
+        return leakDetector;
+    }
+
+    synchronized Path workingDirectory() {
+        if (workingDirectory == null) {
+            try {
+                workingDirectory = WorkingDirectory.create(configuration.workingDirectory());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create a working directory in " + configuration.workingDirectory(), e);
+            }
+        }
+        return workingDirectory.path();
+    }
+
+    Map<String, Map<String, byte[]>> compile(Map<String, Map<String, String>> sources, List<Path> compileModulePath, List<MemoryModule> upstream, List<String> options) throws IOException {
+        if (compileDaemon != null) {
+            var outputs = compileDaemon.compile(sources, compileModulePath, upstream, options);
+            if (outputs != null) {
+                return outputs;
+            }
+        }
+        return compiler.get().compile(sources, compileModulePath, upstream, options);
+    }
+
+    void schedule(Runnable task) {
+        if (compileExecutor == null) {
+            task.run();
+        } else {
+            compileExecutor.execute(task);
+        }
+    }
+
+    @Nullable Executor prefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    Thread startTest(String name, Runnable test) {
+        testPermits.acquireUninterruptibly();
+        try {
+            return configuration.testThreads().start(name, () -> {
+                try {
+                    test.run();
+                } finally {
+                    testPermits.release();
+                }
+            });
+        } catch (Throwable t) {
+            testPermits.release();
+            throw t;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (prefetchExecutor != null) {
+            shutdown(prefetchExecutor);
+        }
+        if (compileExecutor != null) {
+            shutdown(compileExecutor);
+        }
+        if (cache != null) {
+            cache.evict();
+        }
+        var exception = new UncheckedIOException(new IOException("Errors occurred while closing the engine context"));
+        LayerCompiler next;
+        while ((next = compilers.poll()) != null) {
+            try {
+                next.close();
+            } catch (IOException e) {
+                exception.addSuppressed(e);
+            }
+        }
+        synchronized (this) {
+            if (workingDirectory != null) {
+                try {
+                    workingDirectory.close();
+                } catch (IOException e) {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception.getSuppressed().length != 0) {
+            throw exception;
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+final class Fingerprint {
+    private static final Map<Path, FileDigest> FILE_DIGESTS = new ConcurrentHashMap<>();
+
+    private record FileDigest(long size, FileTime modified, byte[] digest) {}
+
+    private final MessageDigest digest = newDigest();
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Fingerprint add(byte[] value) {
+        add(value.length);
+        digest.update(value);
+        return this;
+    }
+
+    Fingerprint add(String value) {
+        return add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Fingerprint add(long value) {
+        for (int i = 0; i < 8; i++) {
+            digest.update((byte) (value >>> (i * 8)));
+        }
+        return this;
+    }
+
+    Fingerprint add(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (var file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                    add(path.relativize(file).toString().replace('\\', '/'));
+                    digest.update(fileDigest(file));
+                }
+            }
+        } else if (Files.isRegularFile(path)) {
+            digest.update(fileDigest(path));
+        } else {
+            add(-1);
+        }
+        return this;
+    }
+
+    private static byte[] fileDigest(Path file) throws IOException {
+        var absolute = file.toAbsolutePath();
+        var size = Files.size(absolute);
+        var modified = Files.getLastModifiedTime(absolute);
+        var existing = FILE_DIGESTS.get(absolute);
+        if (existing != null && existing.size() == size && existing.modified().equals(modified)) {
+            return existing.digest();
+        }
+        var fileDigest = newDigest();
+        try (InputStream stream = new DigestInputStream(Files.newInputStream(absolute), fileDigest)) {
+            stream.transferTo(OutputStream.nullOutputStream());
+        }
+        var result = fileDigest.digest();
+        FILE_DIGESTS.put(absolute, new FileDigest(size, modified, result));
+        return result;
+    }
+
+    String hash() {
+        var bytes = digest.digest();
+        var builder = new StringBuilder(bytes.length * 2);
+        for (var b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
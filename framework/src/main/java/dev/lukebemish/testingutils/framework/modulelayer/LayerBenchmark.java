@@ -0,0 +1,13 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface LayerBenchmark {
+    int warmupIterations() default 10_000;
+    int iterations() default 10_000;
+}
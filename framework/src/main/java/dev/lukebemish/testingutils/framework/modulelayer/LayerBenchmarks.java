@@ -0,0 +1,118 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+final class LayerBenchmarks {
+    // Never equal, but the JIT cannot know that, so results compared against them must still be computed
+    private static volatile long first = 1;
+    private static volatile long second = 2;
+    private static @Nullable Object retained;
+
+    private LayerBenchmarks() {}
+
+    record Result(int warmupIterations, long[] samples, long totalNanos, long allocatedBytes) {
+        Map<String, String> reportEntries() {
+            var sorted = samples.clone();
+            Arrays.sort(sorted);
+            var entries = new LinkedHashMap<String, String>();
+            entries.put("testingutils.benchmark.warmup-iterations", Integer.toString(warmupIterations));
+            entries.put("testingutils.benchmark.iterations", Integer.toString(sorted.length));
+            entries.put("testingutils.benchmark.ops-per-second", String.format(Locale.ROOT, "%.1f", totalNanos == 0 ? 0.0 : sorted.length * 1e9 / totalNanos));
+            entries.put("testingutils.benchmark.p50-nanos", Long.toString(percentile(sorted, 0.50)));
+            entries.put("testingutils.benchmark.p90-nanos", Long.toString(percentile(sorted, 0.90)));
+            entries.put("testingutils.benchmark.p99-nanos", Long.toString(percentile(sorted, 0.99)));
+            entries.put("testingutils.benchmark.max-nanos", Long.toString(maxNanos()));
+            if (allocatedBytes != -1) {
+                entries.put("testingutils.benchmark.allocated-bytes-per-op", Long.toString(allocatedBytesPerOp()));
+            }
+            return entries;
+        }
+
+        long maxNanos() {
+            return Arrays.stream(samples).max().orElse(0);
+        }
+
+        long allocatedBytesPerOp() {
+            return allocatedBytes == -1 ? -1 : allocatedBytes / samples.length;
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            var rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    static Result run(MethodHandle handle, LayerBenchmark benchmark, LongSupplier allocatedBytes) throws Throwable {
+        if (benchmark.warmupIterations() < 0 || benchmark.iterations() < 1) {
+            throw new IllegalArgumentException("@LayerBenchmark needs a non-negative number of warmup iterations and a positive number of iterations, but had " + benchmark.warmupIterations() + " and " + benchmark.iterations());
+        }
+        var exact = consumingResult(handle);
+        for (int i = 0; i < benchmark.warmupIterations(); i++) {
+            exact.invokeExact();
+        }
+        var samples = new long[benchmark.iterations()];
+        var allocatedBefore = allocatedBytes.getAsLong();
+        var started = System.nanoTime();
+        for (int i = 0; i < samples.length; i++) {
+            var start = System.nanoTime();
+            exact.invokeExact();
+            samples[i] = System.nanoTime() - start;
+        }
+        var totalNanos = System.nanoTime() - started;
+        var allocated = allocatedBefore == -1 ? -1 : allocatedBytes.getAsLong() - allocatedBefore;
+        return new Result(benchmark.warmupIterations(), samples, totalNanos, allocated);
+    }
+
+    private static MethodHandle consumingResult(MethodHandle handle) throws ReflectiveOperationException {
+        var returnType = handle.type().returnType();
+        if (returnType == void.class) {
+            return handle.asType(MethodType.methodType(void.class));
+        }
+        Class<?> consumed;
+        if (returnType == boolean.class) {
+            consumed = boolean.class;
+        } else if (returnType == float.class || returnType == double.class) {
+            consumed = double.class;
+        } else if (returnType.isPrimitive()) {
+            consumed = long.class;
+        } else {
+            consumed = Object.class;
+        }
+        var consume = MethodHandles.lookup().findStatic(LayerBenchmarks.class, "consume", MethodType.methodType(void.class, consumed));
+        return MethodHandles.filterReturnValue(handle.asType(handle.type().changeReturnType(consumed)), consume);
+    }
+
+    private static void consume(long value) {
+        if (value == first && value == second) {
+            retained = value;
+        }
+    }
+
+    private static void consume(double value) {
+        if (value == first && value == second) {
+            retained = value;
+        }
+    }
+
+    private static void consume(boolean value) {
+        if (value & (first == second)) {
+            retained = value;
+        }
+    }
+
+    private static void consume(@Nullable Object value) {
+        retained = value;
+    }
+}
@@ -1,38 +1,60 @@
 package dev.lukebemish.testingutils.framework.modulelayer;
 
+import dev.lukebemish.testingutils.framework.modulelayer.internal.SourceLineMap;
 import org.intellij.lang.annotations.Language;
 import org.jspecify.annotations.Nullable;
 import org.junit.jupiter.api.Test;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.junit.platform.commons.support.HierarchyTraversalMode;
 
-import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
-import javax.tools.StandardLocation;
-import javax.tools.ToolProvider;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
 import java.lang.module.ModuleFinder;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public final class LayerBuilder {
     private final List<ModuleBuilder> modules = new ArrayList<>();
     private final @Nullable LayerBuilder parent;
     private final List<Path> paths = new ArrayList<>();
+    private final List<Path> jars = new ArrayList<>();
+    private final List<String> jarModules = new ArrayList<>();
+    private final List<MemoryModule> compiled = new ArrayList<>();
+    // Guards compilation separately, as build holds this builder's monitor while waiting on compilation
+    private final Object compilationLock = new Object();
+    private @Nullable CompletableFuture<List<MemoryModule>> compilation;
+    private boolean built = false;
+    private volatile @Nullable String testClass;
+    private volatile @Nullable String testMethod;
+    private volatile int sourceCount;
+    private volatile long sourceBytes;
+    private volatile long compileNanos;
+    private volatile long defineNanos;
+    private volatile long classBytes;
+    private volatile @Nullable LeakDetector leakDetector;
 
     private LayerBuilder(@Nullable LayerBuilder parent) {
         this.parent = parent;
@@ -49,15 +71,114 @@ public LayerBuilder withModule(String moduleName, Consumer<ModuleBuilder> builde
         return this;
     }
 
+    public LayerBuilder withModuleJar(Path jar) {
+        this.jars.add(jar.toAbsolutePath());
+        return this;
+    }
+
     public LayerBuilder child() {
         return new LayerBuilder(this);
     }
 
-    record LayerInfo(@Nullable LayerBuilder builder, ModuleLayer layer, List<Class<?>> classes, ClassLoader loader, @Nullable LayerInfo parent) implements AutoCloseable {
+    void declaredBy(String testClass, String testMethod) {
+        for (var layer = this; layer != null; layer = layer.parent) {
+            if (layer.testClass == null) {
+                layer.testClass = testClass;
+                layer.testMethod = testMethod;
+            }
+        }
+    }
+
+    long compileNanos() {
+        return compileNanos;
+    }
+
+    long defineNanos() {
+        return defineNanos;
+    }
+
+    long classBytes() {
+        return classBytes;
+    }
+
+    void describe(LayerEvents.LayerEvent event) {
+        describe(event, List.of(this));
+    }
+
+    private static void describe(LayerEvents.LayerEvent event, List<LayerBuilder> layers) {
+        event.testClass = layers.stream().map(layer -> layer.testClass).filter(Objects::nonNull).distinct().collect(Collectors.joining(","));
+        event.testMethod = layers.stream().map(layer -> layer.testMethod).filter(Objects::nonNull).distinct().collect(Collectors.joining(","));
+        event.modules = layers.stream().flatMap(layer -> layer.modules.stream()).map(module -> module.name).collect(Collectors.joining(","));
+        event.sourceCount = layers.stream().mapToInt(layer -> layer.sourceCount).sum();
+        event.sourceBytes = layers.stream().mapToLong(layer -> layer.sourceBytes).sum();
+    }
+
+    private static void finishCompile(LayerEvents.Compile event, long started, List<LayerBuilder> layers, boolean cached, Map<String, Map<String, byte[]>> outputs) {
+        var elapsed = System.nanoTime() - started;
+        for (var layer : layers) {
+            layer.compileNanos = elapsed;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            describe(event, layers);
+            event.cached = cached;
+            event.classBytes = sumClassBytes(outputs.values().stream());
+            event.commit();
+        }
+    }
+
+    private static long sumClassBytes(Stream<Map<String, byte[]>> modules) {
+        return modules.flatMap(entries -> entries.entrySet().stream())
+            .filter(entry -> entry.getKey().endsWith(JavaFileObject.Kind.CLASS.extension))
+            .mapToLong(entry -> entry.getValue().length)
+            .sum();
+    }
+
+    private Map<String, Map<String, String>> sources(LayerConfigurationOptions layerConfigurationOptions) {
+        var event = new LayerEvents.GenerateSources();
+        event.begin();
+        var sources = ModuleBuilder.sources(modules, layerConfigurationOptions);
+        event.end();
+        int count = 0;
+        long bytes = 0;
+        for (var moduleSources : sources.values()) {
+            for (var source : moduleSources.values()) {
+                count++;
+                bytes += utf8Length(source);
+            }
+        }
+        sourceCount = count;
+        sourceBytes = bytes;
+        if (event.shouldCommit()) {
+            describe(event);
+            event.commit();
+        }
+        return sources;
+    }
+
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    record LayerInfo(@Nullable LayerBuilder builder, ModuleLayer layer, List<Class<?>> classes, ClassLoader loader, SharedLayers.@Nullable Lease parent) implements AutoCloseable {
         @Override
-        public void close() throws Exception {
+        public void close() throws IOException {
             if (builder != null) {
-                builder.close();
+                builder.close(loader);
             }
             if (parent != null) {
                 parent.close();
@@ -65,19 +186,38 @@ public void close() throws Exception {
         }
     }
 
-    private Stream<Path> getPaths() {
+    private static List<Path> getPaths() {
+        var value = System.getProperty("jdk.module.path");
+        if (value == null || value.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(File.pathSeparator)).filter(s -> !s.isEmpty()).map(Paths::get).toList();
+    }
+
+    private List<Path> compileModulePath() {
+        var ancestorJars = new ArrayList<Path>();
+        for (var layer = this; layer != null; layer = layer.parent) {
+            ancestorJars.addAll(0, layer.jars);
+        }
+        if (ancestorJars.isEmpty()) {
+            return getPaths();
+        }
+        var compileModulePath = new ArrayList<>(getPaths());
+        compileModulePath.addAll(ancestorJars);
+        return compileModulePath;
+    }
+
+    private Stream<MemoryModule> getUpstreamModules(LayerConfigurationOptions layerConfigurationOptions, EngineContext context) throws IOException {
+        var modules = compile(layerConfigurationOptions, context).stream();
         if (parent == null) {
-            var value = System.getProperty("jdk.module.path");
-            if (value == null || value.isEmpty()) {
-                return Stream.empty();
-            }
-            return Stream.concat(Arrays.stream(value.split(File.pathSeparator)).filter(s -> !s.isEmpty()).map(Paths::get), paths.stream());
-        } else {
-            return Stream.concat(parent.getPaths(), paths.stream());
+            return modules;
         }
+        return Stream.concat(parent.getUpstreamModules(layerConfigurationOptions, context), modules);
     }
 
-    private final Map<String, StackTraceElement> javaInitialLocations = new HashMap<>();
+    private final Map<String, StackTraceElement> javaInitialLocations = new ConcurrentHashMap<>();
+    private final Map<String, int[]> javaLineMaps = new ConcurrentHashMap<>();
+    private final Map<LayerConfigurationOptions, String> fingerprints = new ConcurrentHashMap<>();
 
     private void execute() throws Throwable {
         // This is a stub; in stack traces, execution of tests within this LayerBuilder will be represented
@@ -97,62 +237,222 @@ <T extends Throwable> void fillStackTrace(T throwable) {
         while (iterator.hasNext()) {
             var element = iterator.next();
             if (element.getModuleName() != null) {
-                var identifyingString = element.getModuleName() + "/" + element.getClassName();
+                var className = element.getClassName();
+                var nested = className.indexOf('$');
+                var identifyingString = element.getModuleName() + "/" + (nested == -1 ? className : className.substring(0, nested));
                 var initialLocation = javaInitialLocations.get(identifyingString);
                 if (initialLocation != null) {
                     iterator.add(executeThrowable.getStackTrace()[0]);
-                    iterator.add(initialLocation);
+                    iterator.add(sourceLocation(identifyingString, element.getLineNumber(), initialLocation));
                 }
             }
         }
         throwable.setStackTrace(stackTrace.toArray(StackTraceElement[]::new));
     }
 
-    synchronized LayerInfo build(Path working, LayerConfigurationOptions layerConfigurationOptions) throws IOException {
-        var parentInfo = parent != null ? parent.build(working.resolve("parent"), layerConfigurationOptions) : new LayerInfo(
-            null,
-            LayerBuilder.class.getModule().getLayer(),
-            List.of(),
-            LayerBuilder.class.getClassLoader(),
-            null
+    private StackTraceElement sourceLocation(String identifyingString, int line, StackTraceElement initialLocation) {
+        var lines = javaLineMaps.get(identifyingString);
+        if (lines == null || line < 1 || line > lines.length) {
+            return initialLocation;
+        }
+        return new StackTraceElement(
+            initialLocation.getClassLoaderName(),
+            initialLocation.getModuleName(),
+            initialLocation.getModuleVersion(),
+            initialLocation.getClassName(),
+            initialLocation.getMethodName(),
+            initialLocation.getFileName(),
+            lines[line - 1]
+        );
+    }
+
+    String sourceLines() {
+        return javaLineMaps.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> entry.getKey() + "=" + javaInitialLocations.get(entry.getKey()).getFileName() + ":" + SourceLineMap.encode(entry.getValue()))
+            .collect(Collectors.joining(";"));
+    }
+
+    record TestBudget(@Nullable Duration time, @Nullable Long allocatedBytes) {}
+
+    @Nullable TestBudget budget(String className, String methodName) {
+        for (var module : modules) {
+            if (!module.javaSources.containsKey(className) && !module.classFiles.contains(className)) {
+                continue;
+            }
+            var time = module.timeBudgets.getOrDefault(className + "#" + methodName, module.timeBudgets.get(className));
+            var allocatedBytes = module.allocationBudgets.getOrDefault(className + "#" + methodName, module.allocationBudgets.get(className));
+            return time == null && allocatedBytes == null ? null : new TestBudget(time, allocatedBytes);
+        }
+        return null;
+    }
+
+    private String fingerprint(LayerConfigurationOptions layerConfigurationOptions) throws IOException {
+        var existing = fingerprints.get(layerConfigurationOptions);
+        if (existing != null) {
+            return existing;
+        }
+        var fingerprint = new Fingerprint();
+        fingerprint.add(parent == null ? "" : parent.fingerprint(layerConfigurationOptions));
+        fingerprint.add(layerConfigurationOptions.compilerArgs().size());
+        layerConfigurationOptions.compilerArgs().forEach(fingerprint::add);
+        fingerprint.add(modules.size());
+        for (var module : modules) {
+            fingerprint.add(module.name);
+            var sources = module.sources(layerConfigurationOptions);
+            fingerprint.add(sources.size());
+            for (var entry : sources.entrySet()) {
+                fingerprint.add(entry.getKey()).add(entry.getValue());
+            }
+            fingerprint.add(module.resources.size());
+            for (var entry : module.resources.entrySet()) {
+                fingerprint.add(entry.getKey()).add(entry.getValue());
+            }
+            fingerprint.add(module.externalResources.size());
+            for (var entry : module.externalResources.entrySet()) {
+                fingerprint.add(entry.getKey());
+                var path = entry.getValue().path();
+                if (path != null) {
+                    fingerprint.add(path.toString()).add(path);
+                } else {
+                    fingerprint.add("stream").add(entry.getValue().id());
+                }
+            }
+        }
+        fingerprint.add(jars.size());
+        for (var jar : jars) {
+            fingerprint.add(jar.toString()).add(jar);
+        }
+        var hash = fingerprint.hash();
+        fingerprints.put(layerConfigurationOptions, hash);
+        return hash;
+    }
+
+    static List<String> retainParents(Map<LayerBuilder, LayerConfigurationOptions> layers, EngineContext context) throws IOException {
+        var keys = new ArrayList<String>();
+        for (var layer : layers.entrySet()) {
+            for (var ancestor = layer.getKey().parent; ancestor != null; ancestor = ancestor.parent) {
+                keys.add(ancestor.fingerprint(layer.getValue()));
+            }
+        }
+        // Only once every key is known, so that nothing is left retained if one cannot be computed
+        keys.forEach(context.sharedLayers()::retain);
+        return keys;
+    }
+
+    synchronized LayerInfo build(Path working, LayerConfigurationOptions layerConfigurationOptions, EngineContext context) throws IOException {
+        if (parent == null) {
+            return build(working, layerConfigurationOptions, context, new LayerInfo(
+                null,
+                LayerBuilder.class.getModule().getLayer(),
+                List.of(),
+                LayerBuilder.class.getClassLoader(),
+                null
+            ), null);
+        }
+        var parentLease = context.sharedLayers().acquire(
+            parent.fingerprint(layerConfigurationOptions),
+            () -> parent.build(working.resolve("parent"), layerConfigurationOptions, context)
         );
+        try {
+            return build(working, layerConfigurationOptions, context, parentLease.info(), parentLease);
+        } catch (Throwable t) {
+            try {
+                parentLease.close();
+            } catch (IOException | RuntimeException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+    }
+
+    private LayerInfo build(Path working, LayerConfigurationOptions layerConfigurationOptions, EngineContext context, LayerInfo parentInfo, SharedLayers.@Nullable Lease parentLease) throws IOException {
         var parentLayer = parentInfo.layer();
-        if (!paths.isEmpty()) {
+        if (built) {
             throw new IllegalStateException("LayerBuilder can only be used once");
         }
+        built = true;
+        leakDetector = context.leakDetector();
 
         var moduleNames = new ArrayList<String>();
 
-        List<Path> compileModulePath = getPaths().toList();
-
-        paths.addAll(ModuleBuilder.build(modules, working, compileModulePath, layerConfigurationOptions));
+        compiled.addAll(compile(layerConfigurationOptions, context));
+        if (sourceCount == 0 && !modules.isEmpty()) {
+            // Compiled as part of an identical layer, so this layer's sources were never generated
+            sources(layerConfigurationOptions);
+        }
+        classBytes = sumClassBytes(compiled.stream().map(MemoryModule::entries));
         for (ModuleBuilder moduleBuilder : modules) {
             moduleNames.add(moduleBuilder.name);
         }
 
+        ModuleFinder finder;
+        if (context.configuration().diskOutput()) {
+            var directory = context.workingDirectory().resolve(working);
+            writeToDisk(directory, layerConfigurationOptions);
+            finder = ModuleFinder.of(directory.resolve("out"));
+        } else {
+            compiled.forEach(MemoryModule::register);
+            finder = MemoryModule.finder(compiled);
+        }
+        if (!jars.isEmpty()) {
+            var jarFinder = ModuleFinder.of(jars.toArray(Path[]::new));
+            jarFinder.findAll().stream()
+                .map(reference -> reference.descriptor().name())
+                .sorted()
+                .forEach(jarModules::add);
+            moduleNames.addAll(jarModules);
+            finder = ModuleFinder.compose(finder, jarFinder);
+        }
+
+        var defineStarted = System.nanoTime();
+        var resolveEvent = new LayerEvents.Resolve();
+        resolveEvent.begin();
         var configuration = parentLayer.configuration().resolveAndBind(
             ModuleFinder.of(),
-            ModuleFinder.of(working.resolve("out")),
+            finder,
             moduleNames
         );
+        resolveEvent.end();
+        if (resolveEvent.shouldCommit()) {
+            describe(resolveEvent);
+            resolveEvent.commit();
+        }
+        var defineEvent = new LayerEvents.Define();
+        defineEvent.begin();
         var controller = ModuleLayer.defineModulesWithOneLoader(
             configuration,
             List.of(parentLayer),
             parentInfo.loader()
         );
+        defineEvent.end();
+        defineNanos = System.nanoTime() - defineStarted;
+        if (defineEvent.shouldCommit()) {
+            describe(defineEvent);
+            defineEvent.commit();
+        }
+        var loadEvent = new LayerEvents.LoadClasses();
+        loadEvent.begin();
         var layer = controller.layer();
-        var classLoader = modules.isEmpty() ? parentInfo.loader() : layer.findLoader(modules.get(0).name);
+        var classLoader = moduleNames.isEmpty() ? parentInfo.loader() : layer.findLoader(moduleNames.get(0));
         var classes = new ArrayList<Class<?>>();
         for (var module : modules) {
             var source = controller.layer().findModule(module.name).orElseThrow();
             var target = LayerBuilder.class.getModule();
-            for (var className : module.javaSources.keySet()) {
+            var classNames = new ArrayList<>(module.javaSources.keySet());
+            classNames.addAll(module.classFiles);
+            var moduleClasses = new ArrayList<Class<?>>();
+            for (var className : classNames) {
                 try {
                     var clazz = Class.forName(className, false, classLoader);
-                    classes.add(clazz);
+                    moduleClasses.add(clazz);
                     var initialLocation = module.javaInitialLocations.get(className);
                     if (initialLocation != null) {
                         this.javaInitialLocations.put(module.name + "/" + className, initialLocation);
+                        var lines = module.javaLineMaps.get(className);
+                        if (lines != null) {
+                            this.javaLineMaps.put(module.name + "/" + className, lines);
+                        }
                     }
                     controller.addOpens(source, clazz.getPackageName(), target);
                 } catch (ClassNotFoundException e) {
@@ -160,18 +460,333 @@ synchronized LayerInfo build(Path working, LayerConfigurationOptions layerConfig
                 }
             }
             target.addReads(source);
+            try {
+                module.checkBudgets(moduleClasses);
+            } catch (IllegalArgumentException e) {
+                try {
+                    close(classLoader);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            classes.addAll(moduleClasses);
+        }
+        loadEvent.end();
+        if (loadEvent.shouldCommit()) {
+            describe(loadEvent);
+            loadEvent.classCount = classes.size();
+            loadEvent.commit();
         }
         return new LayerInfo(
             this,
             layer,
             classes,
             classLoader,
-            parentInfo
+            parentLease
         );
     }
 
-    private void close() throws IOException {
+    private @Nullable CompletableFuture<List<MemoryModule>> claim() {
+        synchronized (compilationLock) {
+            if (compilation != null) {
+                return null;
+            }
+            compilation = new CompletableFuture<>();
+            return compilation;
+        }
+    }
+
+    private @Nullable CompletableFuture<List<MemoryModule>> claim(LayerConfigurationOptions layerConfigurationOptions, EngineContext context) {
+        var claimed = claim();
+        if (claimed == null) {
+            return null;
+        }
+        CompletableFuture<List<MemoryModule>> shared;
+        try {
+            shared = context.sharedLayers().compilation(fingerprint(layerConfigurationOptions), claimed);
+        } catch (Throwable t) {
+            claimed.completeExceptionally(t);
+            return null;
+        }
+        if (shared == claimed) {
+            return claimed;
+        }
+        shared.whenComplete((result, failure) -> {
+            if (failure != null) {
+                claimed.completeExceptionally(failure);
+            } else {
+                claimed.complete(result);
+            }
+        });
+        return null;
+    }
+
+    private boolean isClaimed() {
+        synchronized (compilationLock) {
+            return compilation != null;
+        }
+    }
+
+    private List<MemoryModule> compile(LayerConfigurationOptions layerConfigurationOptions, EngineContext context) throws IOException {
+        var claimed = claim(layerConfigurationOptions, context);
+        if (claimed != null) {
+            try {
+                List<MemoryModule> upstream = parent == null ? List.of() : parent.getUpstreamModules(layerConfigurationOptions, context).toList();
+                claimed.complete(ModuleBuilder.build(this, compileModulePath(), upstream, layerConfigurationOptions, context, false));
+            } catch (Throwable t) {
+                claimed.completeExceptionally(t);
+            }
+        }
+        try {
+            return compilation().join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    void precompile(LayerConfigurationOptions layerConfigurationOptions, EngineContext context) throws IOException {
+        compile(layerConfigurationOptions, context);
+    }
+
+    private record BatchEntry(LayerBuilder builder, LayerConfigurationOptions options, Map<String, Map<String, String>> sources, Set<String> requires, @Nullable String key, Map<String, String> moduleKeys) {}
+
+    static void compileAll(Map<LayerBuilder, LayerConfigurationOptions> layers, EngineContext context) throws IOException {
+        var cache = context.cache();
+        var compileModulePath = getPaths();
+        var batches = new ArrayList<List<BatchEntry>>();
+        var alone = new ArrayList<BatchEntry>();
+        for (var layer : layers.entrySet()) {
+            var builder = layer.getKey();
+            var options = layer.getValue();
+            if (builder.parent != null || builder.modules.isEmpty() || builder.isClaimed()) {
+                continue;
+            } else if (!builder.jars.isEmpty() || builder.modules.stream().anyMatch(module -> !module.compiled())) {
+                continue;
+            }
+            var sources = builder.sources(options);
+            @Nullable String key = null;
+            Map<String, String> moduleKeys = Map.of();
+            if (cache != null) {
+                var event = new LayerEvents.Compile();
+                event.begin();
+                var started = System.nanoTime();
+                var modulePathKey = ModuleBuilder.modulePathKey(builder.modules, compileModulePath, List.of(), options, context);
+                key = ModuleBuilder.cacheKey(sources, modulePathKey, List.of(), options.compilerArgs());
+                var cached = cache.get(key);
+                if (cached != null) {
+                    finishCompile(event, started, List.of(builder), true, cached);
+                    var claimed = builder.claim(options, context);
+                    if (claimed != null) {
+                        claimed.complete(ModuleBuilder.withResources(builder.modules, cached, options));
+                    }
+                    continue;
+                }
+                moduleKeys = ModuleBuilder.moduleCacheKeys(builder.modules, sources, modulePathKey, List.of(), options);
+            }
+            var requires = new HashSet<>(options.requires());
+            for (var module : builder.modules) {
+                requires.addAll(module.requires);
+            }
+            var entry = new BatchEntry(builder, options, sources, requires, key, moduleKeys);
+            if (cache != null && moduleKeys.values().stream().anyMatch(cache::contains)) {
+                alone.add(entry);
+                continue;
+            }
+            var batch = batches.stream().filter(candidate -> canJoin(candidate, entry)).findFirst();
+            if (batch.isPresent()) {
+                batch.get().add(entry);
+            } else {
+                batches.add(new ArrayList<>(List.of(entry)));
+            }
+        }
+        // Batches go first, as they never wait on other layers; layers with parents may wait on a batch to finish
+        for (var entry : alone) {
+            batches.add(List.of(entry));
+        }
+        for (var batch : batches) {
+            var claimed = new ArrayList<BatchEntry>();
+            for (var entry : batch) {
+                var compilation = entry.builder().claim(entry.options(), context);
+                if (compilation != null) {
+                    claimed.add(entry);
+                }
+            }
+            context.schedule(() -> compileBatch(claimed, compileModulePath, context));
+        }
+        for (var layer : layers.entrySet()) {
+            var builder = layer.getKey();
+            if (builder.isClaimed()) {
+                continue;
+            }
+            context.schedule(() -> {
+                try {
+                    builder.compile(layer.getValue(), context);
+                } catch (Throwable ignored) {
+                    // Recorded on the layer, and rethrown when it is built
+                }
+            });
+        }
+    }
+
+    private static boolean canJoin(List<BatchEntry> batch, BatchEntry entry) {
+        for (var existing : batch) {
+            if (!existing.options().compilerArgs().equals(entry.options().compilerArgs())) {
+                return false;
+            }
+            for (var name : entry.sources().keySet()) {
+                if (existing.sources().containsKey(name) || existing.requires().contains(name)) {
+                    return false;
+                }
+            }
+            for (var name : existing.sources().keySet()) {
+                if (entry.requires().contains(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void compileBatch(List<BatchEntry> batch, List<Path> compileModulePath, EngineContext context) {
+        if (batch.size() == 1) {
+            compileClaimed(batch.get(0), compileModulePath, context);
+            return;
+        } else if (batch.isEmpty()) {
+            return;
+        }
+        var sources = new LinkedHashMap<String, Map<String, String>>();
+        for (var entry : batch) {
+            sources.putAll(entry.sources());
+        }
+        var cache = context.cache();
+        var event = new LayerEvents.Compile();
+        event.begin();
+        var started = System.nanoTime();
+        Map<String, Map<String, byte[]>> outputs;
+        try {
+            outputs = context.compile(sources, compileModulePath, List.of(), batch.get(0).options().compilerArgs());
+        } catch (LayerCompilationException e) {
+            if (!e.attributable()) {
+                for (var entry : batch) {
+                    compileClaimed(entry, compileModulePath, context);
+                }
+                return;
+            }
+            var remaining = new ArrayList<BatchEntry>();
+            for (var entry : batch) {
+                var error = entry.sources().keySet().stream()
+                    .map(e.errorsByModule()::get)
+                    .filter(Objects::nonNull)
+                    .findFirst();
+                if (error.isPresent()) {
+                    entry.builder().compilation().completeExceptionally(new LayerCompilationException(
+                        "Failed to compile: " + error.get(),
+                        Map.of(),
+                        false
+                    ));
+                } else {
+                    remaining.add(entry);
+                }
+            }
+            compileBatch(remaining, compileModulePath, context);
+            return;
+        } catch (Throwable t) {
+            for (var entry : batch) {
+                entry.builder().compilation().completeExceptionally(t);
+            }
+            return;
+        }
+        finishCompile(event, started, batch.stream().map(BatchEntry::builder).toList(), false, outputs);
+        for (var entry : batch) {
+            var entryOutputs = new LinkedHashMap<String, Map<String, byte[]>>();
+            for (var moduleName : entry.sources().keySet()) {
+                entryOutputs.put(moduleName, outputs.getOrDefault(moduleName, Map.of()));
+            }
+            if (cache != null && entry.key() != null) {
+                ModuleBuilder.store(cache, entry.key(), entry.moduleKeys(), entryOutputs, Set.of());
+            }
+            entry.builder().compilation().complete(ModuleBuilder.withResources(entry.builder().modules, entryOutputs, entry.options()));
+        }
+    }
+
+    private static void compileClaimed(BatchEntry entry, List<Path> compileModulePath, EngineContext context) {
+        var builder = entry.builder();
+        try {
+            builder.compilation().complete(ModuleBuilder.build(builder, compileModulePath, List.of(), entry.options(), context, entry.key() != null));
+        } catch (Throwable t) {
+            builder.compilation().completeExceptionally(t);
+        }
+    }
+
+    private CompletableFuture<List<MemoryModule>> compilation() {
+        synchronized (compilationLock) {
+            return Objects.requireNonNull(compilation);
+        }
+    }
+
+    private void writeToDisk(Path working, LayerConfigurationOptions layerConfigurationOptions) throws IOException {
+        for (var module : modules) {
+            var sourcePath = working.resolve("src").resolve(module.name);
+            paths.add(sourcePath);
+            for (var entry : module.sources(layerConfigurationOptions).entrySet()) {
+                var path = sourcePath.resolve(entry.getKey().replace('.', '/') + ".java");
+                Files.createDirectories(path.getParent());
+                Files.writeString(path, entry.getValue());
+            }
+        }
+        for (var module : compiled) {
+            var modulePath = working.resolve("out").resolve(module.name());
+            paths.add(modulePath);
+            Files.createDirectories(modulePath);
+            for (var entry : module.entries().entrySet()) {
+                var path = modulePath.resolve(entry.getKey());
+                Files.createDirectories(path.getParent());
+                Files.write(path, entry.getValue());
+            }
+            for (var entry : module.externals().entrySet()) {
+                var path = modulePath.resolve(entry.getKey());
+                if (Files.exists(path)) {
+                    continue;
+                }
+                Files.createDirectories(path.getParent());
+                var source = entry.getValue().path();
+                if (source != null) {
+                    try {
+                        Files.createSymbolicLink(path, source.toAbsolutePath());
+                        continue;
+                    } catch (UnsupportedOperationException | IOException e) {
+                        // Copied instead, below
+                    }
+                }
+                try (var stream = entry.getValue().open()) {
+                    Files.copy(stream, path);
+                }
+            }
+        }
+    }
+
+    private void close(ClassLoader loader) throws IOException {
+        var leakDetector = this.leakDetector;
+        if (leakDetector != null && (!modules.isEmpty() || !jarModules.isEmpty())) {
+            var moduleNames = Stream.concat(modules.stream().map(module -> module.name), jarModules.stream()).toList();
+            leakDetector.track(testClass, "Layer " + moduleNames + " of " + testClass + "#" + testMethod, moduleNames, loader);
+            leakDetector.track(testClass, "Builder of layer " + moduleNames + " of " + testClass + "#" + testMethod, moduleNames, this);
+        }
+        var event = new LayerEvents.Cleanup();
+        event.begin();
+        compiled.forEach(MemoryModule::unregister);
         var pending = new ArrayList<IOException>();
+        var deletedFiles = new int[1];
+        var deletedBytes = new long[1];
         for (var path : paths) {
             if (!Files.exists(path)) {
                 continue;
@@ -181,6 +796,8 @@ private void close() throws IOException {
                     @Override
                     public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
                         Files.delete(file);
+                        deletedFiles[0]++;
+                        deletedBytes[0] += attributes.size();
                         return FileVisitResult.CONTINUE;
                     }
 
@@ -199,12 +816,12 @@ public FileVisitResult postVisitDirectory(Path directory, @Nullable IOException
                 pending.add(e);
             }
         }
-        try {
-            if (parent != null) {
-                parent.close();
-            }
-        } catch (IOException e) {
-            pending.add(e);
+        event.end();
+        if (event.shouldCommit()) {
+            describe(event);
+            event.deletedFiles = deletedFiles[0];
+            event.deletedBytes = deletedBytes[0];
+            event.commit();
         }
         if (!pending.isEmpty()) {
             if (pending.size() == 1) {
@@ -225,7 +842,12 @@ public static final class ModuleBuilder {
         private final List<String> opens = new ArrayList<>();
         private final Map<String, String> javaSources = new LinkedHashMap<>();
         private final Map<String, StackTraceElement> javaInitialLocations = new LinkedHashMap<>();
+        private final Map<String, int[]> javaLineMaps = new LinkedHashMap<>();
         private final Map<String, byte[]> resources = new LinkedHashMap<>();
+        private final Map<String, MemoryModule.External> externalResources = new LinkedHashMap<>();
+        private final List<String> classFiles = new ArrayList<>();
+        private final Map<String, Duration> timeBudgets = new LinkedHashMap<>();
+        private final Map<String, Long> allocationBudgets = new LinkedHashMap<>();
         private final String name;
 
         public ModuleBuilder(String name) {
@@ -252,11 +874,88 @@ public ModuleBuilder opens(String packageName) {
             return this;
         }
 
+        @FunctionalInterface
+        public interface ResourceSource {
+            InputStream open() throws IOException;
+        }
+
         public ModuleBuilder resource(String name, byte[] content) {
+            this.externalResources.remove(name);
             this.resources.put(name, content);
             return this;
         }
 
+        public ModuleBuilder resource(String name, Path path) {
+            this.resources.remove(name);
+            this.externalResources.put(name, MemoryModule.External.of(path.toAbsolutePath()));
+            return this;
+        }
+
+        public ModuleBuilder resource(String name, ResourceSource source) {
+            this.resources.remove(name);
+            this.externalResources.put(name, MemoryModule.External.of(source));
+            return this;
+        }
+
+        public ModuleBuilder classFile(String className, byte[] content) {
+            this.resources.put(className.replace('.', '/') + JavaFileObject.Kind.CLASS.extension, content);
+            if (!this.classFiles.contains(className)) {
+                this.classFiles.add(className);
+            }
+            return this;
+        }
+
+        public ModuleBuilder moduleInfo(byte[] content) {
+            this.resources.put(MODULE_INFO, content);
+            return this;
+        }
+
+        public ModuleBuilder timeBudget(String test, Duration budget) {
+            if (budget.isNegative()) {
+                throw new IllegalArgumentException("Time budget for " + test + " must not be negative, but was " + budget);
+            }
+            this.timeBudgets.put(test, budget);
+            return this;
+        }
+
+        public ModuleBuilder allocationBudget(String test, long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Allocation budget for " + test + " must not be negative, but was " + bytes);
+            }
+            this.allocationBudgets.put(test, bytes);
+            return this;
+        }
+
+        private void checkBudgets(List<Class<?>> classes) {
+            var tests = new HashSet<String>();
+            for (var clazz : classes) {
+                for (var method : AnnotationSupport.findAnnotatedMethods(clazz, Test.class, HierarchyTraversalMode.TOP_DOWN)) {
+                    tests.add(clazz.getName());
+                    tests.add(clazz.getName() + "#" + method.getName());
+                }
+            }
+            for (var test : Stream.concat(timeBudgets.keySet().stream(), allocationBudgets.keySet().stream()).toList()) {
+                if (!tests.contains(test)) {
+                    throw new IllegalArgumentException("Budget for " + test + " in module " + name + " matches no generated test");
+                }
+            }
+        }
+
+        private static final String MODULE_INFO = "module-info" + JavaFileObject.Kind.CLASS.extension;
+
+        private boolean compiled() {
+            return !javaSources.isEmpty();
+        }
+
+        private byte[] moduleInfoClass(LayerConfigurationOptions layerConfigurationOptions) {
+            var builder = ModuleDescriptor.newModule(name, open ? Set.of(ModuleDescriptor.Modifier.OPEN) : Set.of());
+            Stream.concat(requires.stream(), layerConfigurationOptions.requires().stream()).distinct().forEach(builder::requires);
+            exports.forEach(builder::exports);
+            opens.forEach(builder::opens);
+            builder.packages(MemoryModule.packages(Stream.concat(resources.keySet().stream(), externalResources.keySet().stream())));
+            return ModuleInfoWriter.write(builder.build());
+        }
+
         private static final String REPLACEMENT_STRING = "${{DEV_LUKEBEMISH_TESTINGUTILS_FRAMEWORK_REPLACEMENT}}";
 
         public ModuleBuilder test(
@@ -278,11 +977,18 @@ public ModuleBuilder test(
             return this;
         }
 
+        private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
         private void findLineNumber(String className) {
-            var stackTrace = new RuntimeException().getStackTrace();
-            if (stackTrace.length >= 3) {
-                this.javaInitialLocations.put(className, stackTrace[2]);
-            }
+            STACK_WALKER.walk(frames -> frames.skip(2).findFirst()).ifPresent(frame -> {
+                this.javaInitialLocations.put(className, frame.toStackTraceElement());
+                var lines = SourceLineMap.forClass(frame.getDeclaringClass()).lines(frame.getLineNumber(), className);
+                if (lines != null) {
+                    this.javaLineMaps.put(className, lines);
+                } else {
+                    this.javaLineMaps.remove(className);
+                }
+            });
         }
 
         public ModuleBuilder java(
@@ -300,98 +1006,252 @@ public ModuleBuilder java(
             return this;
         }
 
-        static List<Path> build(List<ModuleBuilder> modules, Path working, List<Path> compileModulePath, LayerConfigurationOptions layerConfigurationOptions) throws IOException {
+        private String moduleInfo(LayerConfigurationOptions layerConfigurationOptions) {
+            StringBuilder moduleInfoBuilder = new StringBuilder();
+            if (open) {
+                moduleInfoBuilder.append("open ");
+            }
+            moduleInfoBuilder.append("module ").append(name).append(" {\n");
+            for (String require : requires) {
+                moduleInfoBuilder.append("    requires ").append(require).append(";\n");
+            }
+            for (String require : layerConfigurationOptions.requires()) {
+                moduleInfoBuilder.append("    requires ").append(require).append(";\n");
+            }
+            for (String export : exports) {
+                moduleInfoBuilder.append("    exports ").append(export).append(";\n");
+            }
+            for (String open : opens) {
+                moduleInfoBuilder.append("    opens ").append(open).append(";\n");
+            }
+            moduleInfoBuilder.append("}\n");
+            return moduleInfoBuilder.toString();
+        }
+
+        private Map<String, String> sources(LayerConfigurationOptions layerConfigurationOptions) {
+            var fullSources = new LinkedHashMap<String, String>();
+            var prefixString = new StringBuilder();
+            for (var importString : layerConfigurationOptions.imports()) {
+                prefixString.append("import ").append(importString).append(";");
+            }
+            for (var staticImportString : layerConfigurationOptions.staticImports()) {
+                prefixString.append("import static ").append(staticImportString).append(";");
+            }
+            if (!compiled()) {
+                return fullSources;
+            } else if (resources.containsKey(MODULE_INFO)) {
+                throw new IllegalStateException("Module " + name + " has Java sources, so cannot be given a prebuilt module-info");
+            }
+            for (var entry : javaSources.entrySet()) {
+                fullSources.put(entry.getKey(), entry.getValue().replace(REPLACEMENT_STRING, prefixString));
+            }
+            fullSources.put("module-info", moduleInfo(layerConfigurationOptions));
+            return fullSources;
+        }
+
+        static List<MemoryModule> build(LayerBuilder layer, List<Path> compileModulePath, List<MemoryModule> upstream, LayerConfigurationOptions layerConfigurationOptions, EngineContext context, boolean missed) throws IOException {
             if (!Test.class.getModule().isNamed()) {
                 throw new IllegalStateException("ModuleLayerEngine may only be used in a modular environment, so that tests may be properly compiled");
             }
 
-            var paths = new ArrayList<Path>();
-            var compiler = ToolProvider.getSystemJavaCompiler();
+            var modules = layer.modules;
+            if (modules.isEmpty()) {
+                return List.of();
+            } else if (modules.stream().noneMatch(ModuleBuilder::compiled)) {
+                return withResources(modules, Map.of(), layerConfigurationOptions);
+            }
+
+            var event = new LayerEvents.Compile();
+            event.begin();
+
+            var started = System.nanoTime();
 
             List<String> options = new ArrayList<>(layerConfigurationOptions.compilerArgs());
 
-            var diagnostics = new DiagnosticCollector<>();
-            var manager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+            var sources = layer.sources(layerConfigurationOptions);
+            var compiledModules = modules.stream().filter(ModuleBuilder::compiled).toList();
+            var notCompiled = modules.stream().filter(module -> !module.compiled()).toList();
+            if (!notCompiled.isEmpty()) {
+                var withNotCompiled = new ArrayList<>(upstream);
+                withNotCompiled.addAll(withResources(notCompiled, Map.of(), layerConfigurationOptions));
+                upstream = withNotCompiled;
+            }
 
-            var files = new ArrayList<JavaFileObject>();
-            for (var module : modules) {
-                var modulePath = working.resolve("out").resolve(module.name);
-                paths.add(modulePath);
-                Files.createDirectories(modulePath);
-                StringBuilder moduleInfoBuilder = new StringBuilder();
-                if (module.open) {
-                    moduleInfoBuilder.append("open ");
-                }
-                moduleInfoBuilder.append("module ").append(module.name).append(" {\n");
-                for (String require : module.requires) {
-                    moduleInfoBuilder.append("    requires ").append(require).append(";\n");
-                }
-                for (String require : layerConfigurationOptions.requires()) {
-                    moduleInfoBuilder.append("    requires ").append(require).append(";\n");
-                }
-                for (String export : module.exports) {
-                    moduleInfoBuilder.append("    exports ").append(export).append(";\n");
-                }
-                for (String open : module.opens) {
-                    moduleInfoBuilder.append("    opens ").append(open).append(";\n");
-                }
-                moduleInfoBuilder.append("}\n");
-                String moduleInfo = moduleInfoBuilder.toString();
+            var cache = context.cache();
+            if (cache == null) {
+                var outputs = context.compile(sources, compileModulePath, upstream, options);
+                finishCompile(event, started, List.of(layer), false, outputs);
+                return withResources(modules, outputs, layerConfigurationOptions);
+            }
 
-                Files.createDirectories(working.resolve("src").resolve(module.name));
-                manager.setLocationForModule(StandardLocation.MODULE_SOURCE_PATH, module.name, List.of(working.resolve("src").resolve(module.name)));
+            var modulePathKey = modulePathKey(compiledModules, compileModulePath, upstream, layerConfigurationOptions, context);
+            var key = cacheKey(sources, modulePathKey, upstream, options);
+            var cached = missed ? null : cache.get(key);
+            if (cached != null) {
+                finishCompile(event, started, List.of(layer), true, cached);
+                return withResources(modules, cached, layerConfigurationOptions);
+            }
 
-                var fullSources = new HashMap<String, String>();
-                var prefixString = new StringBuilder();
-                for (var importString : layerConfigurationOptions.imports()) {
-                    prefixString.append("import ").append(importString).append(";");
+            var moduleKeys = moduleCacheKeys(compiledModules, sources, modulePathKey, upstream, layerConfigurationOptions);
+            var reused = cachedModules(cache, moduleKeys);
+            Map<String, Map<String, byte[]>> outputs;
+            if (reused.isEmpty()) {
+                outputs = context.compile(sources, compileModulePath, upstream, options);
+            } else {
+                var changed = new LinkedHashMap<>(sources);
+                changed.keySet().removeAll(reused.keySet());
+                var compileUpstream = new ArrayList<>(upstream);
+                reused.forEach((name, entries) -> compileUpstream.add(new MemoryModule(name, entries)));
+                var compiled = changed.isEmpty() ? Map.<String, Map<String, byte[]>>of() : context.compile(changed, compileModulePath, compileUpstream, options);
+                outputs = new LinkedHashMap<>();
+                for (var module : modules) {
+                    var moduleOutputs = reused.containsKey(module.name) ? reused.get(module.name) : compiled.get(module.name);
+                    outputs.put(module.name, moduleOutputs == null ? Map.of() : moduleOutputs);
                 }
-                for (var staticImportString : layerConfigurationOptions.staticImports()) {
-                    prefixString.append("import static ").append(staticImportString).append(";");
-                }
-                for (var entry : module.javaSources.entrySet()) {
-                    fullSources.put(entry.getKey(), entry.getValue().replace(REPLACEMENT_STRING, prefixString));
+            }
+            store(cache, key, moduleKeys, outputs, reused.keySet());
+            finishCompile(event, started, List.of(layer), reused.size() == compiledModules.size(), outputs);
+            return withResources(modules, outputs, layerConfigurationOptions);
+        }
+
+        // A module's key covers those of the modules it requires, so that their dependents are recompiled too
+        private static Map<String, String> moduleCacheKeys(List<ModuleBuilder> modules, Map<String, Map<String, String>> sources, String modulePathKey, List<MemoryModule> upstream, LayerConfigurationOptions layerConfigurationOptions) {
+            var keys = new LinkedHashMap<String, String>();
+            if (modules.size() < 2) {
+                return keys;
+            }
+            var base = cacheKey(Map.of(), modulePathKey, upstream, layerConfigurationOptions.compilerArgs());
+            var byName = new HashMap<String, ModuleBuilder>();
+            for (var module : modules) {
+                byName.put(module.name, module);
+            }
+            for (var module : modules) {
+                moduleCacheKey(module, byName, sources, base, layerConfigurationOptions, keys, new HashSet<>());
+            }
+            return keys;
+        }
+
+        private static String moduleCacheKey(ModuleBuilder module, Map<String, ModuleBuilder> byName, Map<String, Map<String, String>> sources, String base, LayerConfigurationOptions layerConfigurationOptions, Map<String, String> keys, Set<String> visiting) {
+            var existing = keys.get(module.name);
+            if (existing != null) {
+                return existing;
+            }
+            if (!visiting.add(module.name)) {
+                // A cycle, which javac will reject anyways
+                return "";
+            }
+            var fingerprint = LayerCompilationCache.fingerprint().add("module").add(base).add(module.name);
+            var moduleSources = sources.getOrDefault(module.name, Map.of());
+            fingerprint.add(moduleSources.size());
+            for (var entry : moduleSources.entrySet()) {
+                fingerprint.add(entry.getKey()).add(entry.getValue());
+            }
+            fingerprint.add(module.resources.size());
+            for (var entry : module.resources.entrySet()) {
+                fingerprint.add(entry.getKey()).add(entry.getValue());
+            }
+            fingerprint.add(module.externalResources.size());
+            module.externalResources.keySet().forEach(fingerprint::add);
+            var dependencies = Stream.concat(module.requires.stream(), layerConfigurationOptions.requires().stream())
+                .filter(name -> !name.equals(module.name) && byName.containsKey(name))
+                .distinct()
+                .sorted()
+                .toList();
+            fingerprint.add(dependencies.size());
+            for (var dependency : dependencies) {
+                fingerprint.add(dependency).add(moduleCacheKey(byName.get(dependency), byName, sources, base, layerConfigurationOptions, keys, visiting));
+            }
+            var key = fingerprint.hash();
+            keys.put(module.name, key);
+            return key;
+        }
+
+        private static Map<String, Map<String, byte[]>> cachedModules(LayerCompilationCache cache, Map<String, String> moduleKeys) {
+            var reused = new LinkedHashMap<String, Map<String, byte[]>>();
+            for (var entry : moduleKeys.entrySet()) {
+                var cached = cache.find(entry.getValue());
+                var moduleOutputs = cached == null ? null : cached.get(entry.getKey());
+                if (moduleOutputs != null) {
+                    reused.put(entry.getKey(), moduleOutputs);
                 }
-                fullSources.put("module-info", moduleInfo);
-
-                for (var entry : fullSources.entrySet()) {
-                    var sourcePath = working.resolve("src").resolve(module.name).resolve(entry.getKey().replace('.', '/')+".java");
-                    Files.createDirectories(sourcePath.getParent());
-                    Files.writeString(sourcePath, entry.getValue());
-                    var location = manager.getLocationForModule(StandardLocation.MODULE_SOURCE_PATH, module.name);
-                    files.add(manager.getJavaFileForInput(
-                        location,
-                        entry.getKey(),
-                        JavaFileObject.Kind.SOURCE
-                    ));
+            }
+            return reused;
+        }
+
+        private static void store(LayerCompilationCache cache, String key, Map<String, String> moduleKeys, Map<String, Map<String, byte[]>> outputs, Set<String> alreadyStored) {
+            cache.put(key, outputs);
+            for (var entry : moduleKeys.entrySet()) {
+                var moduleOutputs = outputs.get(entry.getKey());
+                if (moduleOutputs != null && !alreadyStored.contains(entry.getKey())) {
+                    cache.put(entry.getValue(), Map.of(entry.getKey(), moduleOutputs));
                 }
+            }
+        }
 
-                manager.setLocationForModule(StandardLocation.CLASS_OUTPUT, module.name, List.of(modulePath));
+        private static Map<String, Map<String, String>> sources(List<ModuleBuilder> modules, LayerConfigurationOptions layerConfigurationOptions) {
+            var sources = new LinkedHashMap<String, Map<String, String>>();
+            for (var module : modules) {
+                if (module.compiled()) {
+                    sources.put(module.name, module.sources(layerConfigurationOptions));
+                }
             }
+            return sources;
+        }
 
-            manager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(working.resolve("out")));
-            manager.setLocationFromPaths(StandardLocation.MODULE_PATH, compileModulePath);
+        private static String modulePathKey(List<ModuleBuilder> modules, List<Path> compileModulePath, List<MemoryModule> upstream, LayerConfigurationOptions layerConfigurationOptions, EngineContext context) throws IOException {
+            var roots = new HashSet<>(layerConfigurationOptions.requires());
+            modules.forEach(module -> roots.addAll(module.requires));
+            for (var module : upstream) {
+                if (module.entries().containsKey("module-info.class")) {
+                    module.descriptor().requires().forEach(requires -> roots.add(requires.name()));
+                }
+            }
+            // Modules may also be named by options such as --add-modules; anything else is not on the module path
+            for (var arg : layerConfigurationOptions.compilerArgs()) {
+                roots.addAll(Arrays.asList(arg.split("[=,]")));
+            }
+            return context.modulePathDigests().key(compileModulePath, roots);
+        }
 
-            var task = compiler.getTask(null, manager, diagnostics, options, null, files);
-            for (var module : modules) {
-                task.addModules(List.of(module.name));
+        private static String cacheKey(Map<String, Map<String, String>> sources, String modulePathKey, List<MemoryModule> upstream, List<String> options) {
+            var fingerprint = LayerCompilationCache.fingerprint();
+            fingerprint.add(options.size());
+            options.forEach(fingerprint::add);
+            fingerprint.add(modulePathKey);
+            fingerprint.add(upstream.size());
+            for (var module : upstream) {
+                fingerprint.add(module.name());
+                var classes = module.entries().keySet().stream()
+                    .filter(name -> name.endsWith(JavaFileObject.Kind.CLASS.extension))
+                    .sorted()
+                    .toList();
+                fingerprint.add(classes.size());
+                for (var name : classes) {
+                    fingerprint.add(name).add(module.entries().get(name));
+                }
             }
-            if (!task.call()) {
-                var firstError = diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR).findFirst();
-                firstError.ifPresent(error -> {
-                    throw new RuntimeException("Failed to compile: " + error.getMessage(Locale.ROOT));
-                });
-                throw new RuntimeException("Failed to compile");
+            fingerprint.add(sources.size());
+            for (var moduleSources : sources.entrySet()) {
+                fingerprint.add(moduleSources.getKey());
+                fingerprint.add(moduleSources.getValue().size());
+                for (var entry : moduleSources.getValue().entrySet()) {
+                    fingerprint.add(entry.getKey()).add(entry.getValue());
+                }
             }
+            return fingerprint.hash();
+        }
 
-            for (var module : modules){
-                for (var entry : module.resources.entrySet()) {
-                    var resourcePath = working.resolve("out").resolve(module.name).resolve(entry.getKey());
-                    Files.createDirectories(resourcePath.getParent());
-                    Files.write(resourcePath, entry.getValue());
+        private static List<MemoryModule> withResources(List<ModuleBuilder> modules, Map<String, Map<String, byte[]>> outputs, LayerConfigurationOptions layerConfigurationOptions) {
+            var result = new ArrayList<MemoryModule>();
+            for (var module : modules) {
+                var entries = new LinkedHashMap<>(outputs.getOrDefault(module.name, Map.of()));
+                if (!module.compiled() && !module.resources.containsKey(MODULE_INFO)) {
+                    entries.put(MODULE_INFO, module.moduleInfoClass(layerConfigurationOptions));
                 }
+                entries.putAll(module.resources);
+                result.add(new MemoryModule(module.name, entries, module.externalResources));
             }
-            return paths;
+            return result;
         }
     }
 }
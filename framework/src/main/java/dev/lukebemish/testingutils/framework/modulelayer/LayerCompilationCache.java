@@ -0,0 +1,196 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+final class LayerCompilationCache {
+    private static final int VERSION = 2;
+    private static final String EXTENSION = ".layer";
+
+    private final @Nullable Path directory;
+    private final long maxSize;
+    private final @Nullable Path precompiled;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    LayerCompilationCache(@Nullable Path directory, long maxSize, @Nullable Path precompiled) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.precompiled = precompiled;
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    // Only the feature release is included, so that output compiled ahead of time stays usable across update releases
+    static Fingerprint fingerprint() {
+        return new Fingerprint()
+            .add(VERSION)
+            .add(Runtime.version().feature());
+    }
+
+    boolean contains(String key) {
+        return (directory != null && Files.isRegularFile(directory.resolve(key + EXTENSION)))
+            || (precompiled != null && Files.isRegularFile(precompiled.resolve(key + EXTENSION)));
+    }
+
+    @Nullable Map<String, Map<String, byte[]>> get(String key) {
+        var cached = find(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return cached;
+    }
+
+    @Nullable Map<String, Map<String, byte[]>> find(String key) {
+        if (directory != null) {
+            var cached = read(directory.resolve(key + EXTENSION), true);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (precompiled != null) {
+            return read(precompiled.resolve(key + EXTENSION), false);
+        }
+        return null;
+    }
+
+    private static @Nullable Map<String, Map<String, byte[]>> read(Path path, boolean writable) {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != VERSION) {
+                throw new IOException("Unknown cache entry version");
+            }
+            var modules = new LinkedHashMap<String, Map<String, byte[]>>();
+            var moduleCount = input.readInt();
+            for (int i = 0; i < moduleCount; i++) {
+                var moduleName = input.readUTF();
+                var entries = new LinkedHashMap<String, byte[]>();
+                var entryCount = input.readInt();
+                for (int j = 0; j < entryCount; j++) {
+                    var name = input.readUTF();
+                    var bytes = new byte[input.readInt()];
+                    input.readFully(bytes);
+                    entries.put(name, bytes);
+                }
+                modules.put(moduleName, entries);
+            }
+            if (writable) {
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            return modules;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // A corrupt or unreadable entry is treated as a miss, and replaced on the next put
+            if (writable) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    void put(String key, Map<String, Map<String, byte[]>> modules) {
+        var directory = this.directory;
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            var temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    output.writeInt(VERSION);
+                    output.writeInt(modules.size());
+                    for (var module : modules.entrySet()) {
+                        output.writeUTF(module.getKey());
+                        output.writeInt(module.getValue().size());
+                        for (var entry : module.getValue().entrySet()) {
+                            output.writeUTF(entry.getKey());
+                            output.writeInt(entry.getValue().length);
+                            output.write(entry.getValue());
+                        }
+                    }
+                }
+                var target = directory.resolve(key + EXTENSION);
+                try {
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException ignored) {
+            // The cache is only an optimization; failing to write to it should not fail the test
+        }
+    }
+
+    private record Entry(Path path, long size, FileTime modified) {}
+
+    void evict() {
+        var directory = this.directory;
+        if (directory == null || maxSize == Long.MAX_VALUE) {
+            return;
+        }
+        try {
+            evict(directory);
+        } catch (IOException ignored) {
+            // The cache is only an optimization; failing to evict from it should not fail the run
+        }
+    }
+
+    private void evict(Path directory) throws IOException {
+        var entries = new ArrayList<Entry>();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (var path : (Iterable<Path>) files.filter(p -> p.getFileName().toString().endsWith(EXTENSION))::iterator) {
+                try {
+                    entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path)));
+                } catch (NoSuchFileException ignored) {
+                    // Evicted concurrently by another process
+                }
+            }
+        }
+        long total = entries.stream().mapToLong(Entry::size).sum();
+        if (total <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparing(Entry::modified));
+        for (var entry : entries) {
+            if (total <= maxSize) {
+                break;
+            }
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import java.util.Map;
+
+final class LayerCompilationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, String> errorsByModule;
+    private final boolean attributable;
+
+    LayerCompilationException(String message, Map<String, String> errorsByModule, boolean attributable) {
+        super(message);
+        this.errorsByModule = errorsByModule;
+        this.attributable = attributable;
+    }
+
+    Map<String, String> errorsByModule() {
+        return errorsByModule;
+    }
+
+    boolean attributable() {
+        return attributable;
+    }
+}
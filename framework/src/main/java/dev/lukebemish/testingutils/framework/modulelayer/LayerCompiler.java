@@ -0,0 +1,82 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+final class LayerCompiler implements AutoCloseable {
+    private final Thread owner = Thread.currentThread();
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8));
+    private @Nullable List<Path> modulePath;
+
+    Map<String, Map<String, byte[]>> compile(Map<String, Map<String, String>> sources, List<Path> compileModulePath, List<MemoryModule> upstream, List<String> options) throws IOException {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("LayerCompiler used from a thread other than the one that created it");
+        }
+        fileManager.reset();
+        if (!compileModulePath.equals(modulePath)) {
+            fileManager.setModulePath(compileModulePath);
+            modulePath = List.copyOf(compileModulePath);
+        }
+
+        var files = new ArrayList<JavaFileObject>();
+        for (var moduleSources : sources.entrySet()) {
+            for (var entry : moduleSources.getValue().entrySet()) {
+                files.add(fileManager.addSource(moduleSources.getKey(), entry.getKey(), entry.getValue()));
+            }
+        }
+        upstream.forEach(fileManager::addUpstream);
+
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try {
+            var task = compiler.getTask(null, fileManager, diagnostics, options, null, files);
+            task.addModules(sources.keySet());
+            if (!task.call()) {
+                var errorsByModule = new LinkedHashMap<String, String>();
+                boolean attributable = true;
+                @Nullable String firstError = null;
+                for (var diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                        continue;
+                    }
+                    var message = diagnostic.getMessage(Locale.ROOT);
+                    if (firstError == null) {
+                        firstError = message;
+                    }
+                    var moduleName = diagnostic.getSource() == null ? null : fileManager.moduleOf(diagnostic.getSource());
+                    if (moduleName == null) {
+                        attributable = false;
+                    } else {
+                        errorsByModule.putIfAbsent(moduleName, message);
+                    }
+                }
+                throw new LayerCompilationException(
+                    firstError == null ? "Failed to compile" : "Failed to compile: " + firstError,
+                    errorsByModule,
+                    attributable && !errorsByModule.isEmpty()
+                );
+            }
+            return fileManager.outputs();
+        } finally {
+            fileManager.reset();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+}
@@ -0,0 +1,88 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jspecify.annotations.Nullable;
+
+final class LayerEvents {
+    private static final String PREFIX = "dev.lukebemish.testingutils.";
+
+    private LayerEvents() {}
+
+    @Category({"TestingUtils", "Module Layers"})
+    @StackTrace(false)
+    abstract static class LayerEvent extends Event {
+        @Label("Test Class")
+        @Nullable String testClass;
+
+        @Label("Test Method")
+        @Nullable String testMethod;
+
+        @Label("Modules")
+        @Nullable String modules;
+
+        @Label("Source Files")
+        int sourceCount;
+
+        @Label("Source Size")
+        @DataAmount
+        long sourceBytes;
+    }
+
+    @Name(PREFIX + "GenerateSources")
+    @Label("Generate Layer Sources")
+    static final class GenerateSources extends LayerEvent {}
+
+    @Name(PREFIX + "Compile")
+    @Label("Compile Layer")
+    @Description("Compiling the sources of one or more layers, or reading their output from the cache")
+    static final class Compile extends LayerEvent {
+        @Label("Cached")
+        boolean cached;
+
+        @Label("Class File Size")
+        @DataAmount
+        long classBytes;
+    }
+
+    @Name(PREFIX + "Resolve")
+    @Label("Resolve Layer")
+    static final class Resolve extends LayerEvent {}
+
+    @Name(PREFIX + "Define")
+    @Label("Define Layer")
+    static final class Define extends LayerEvent {}
+
+    @Name(PREFIX + "LoadClasses")
+    @Label("Load Layer Classes")
+    static final class LoadClasses extends LayerEvent {
+        @Label("Classes")
+        int classCount;
+    }
+
+    @Name(PREFIX + "Execute")
+    @Label("Execute Layer Test")
+    static final class Execute extends LayerEvent {
+        @Label("Generated Class")
+        @Nullable String generatedClass;
+
+        @Label("Generated Test")
+        @Nullable String generatedTest;
+    }
+
+    @Name(PREFIX + "Cleanup")
+    @Label("Clean Up Layer")
+    static final class Cleanup extends LayerEvent {
+        @Label("Deleted Files")
+        int deletedFiles;
+
+        @Label("Deleted Size")
+        @DataAmount
+        long deletedBytes;
+    }
+}
@@ -0,0 +1,68 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.platform.engine.ConfigurationParameters;
+import org.junit.platform.engine.EngineExecutionListener;
+import org.junit.platform.engine.TestDescriptor;
+import org.junit.platform.engine.support.hierarchical.EngineExecutionContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class LayerExecutionContext implements EngineExecutionContext {
+    private final EngineExecutionListener listener;
+    private final ConfigurationParameters configurationParameters;
+    private final @Nullable EngineContext engineContext;
+    private final Map<TestDescriptor, Object> layers;
+    private final List<String> retainedParents;
+    private final @Nullable LayerPrefetch prefetch;
+
+    LayerExecutionContext(EngineExecutionListener listener, ConfigurationParameters configurationParameters) {
+        this(listener, configurationParameters, null, Map.of(), List.of(), null);
+    }
+
+    private LayerExecutionContext(EngineExecutionListener listener, ConfigurationParameters configurationParameters, @Nullable EngineContext engineContext, Map<TestDescriptor, Object> layers, List<String> retainedParents, @Nullable LayerPrefetch prefetch) {
+        this.listener = listener;
+        this.configurationParameters = configurationParameters;
+        this.engineContext = engineContext;
+        this.layers = layers;
+        this.retainedParents = retainedParents;
+        this.prefetch = prefetch;
+    }
+
+    EngineExecutionListener listener() {
+        return listener;
+    }
+
+    ConfigurationParameters configurationParameters() {
+        return configurationParameters;
+    }
+
+    EngineContext engineContext() {
+        if (engineContext == null) {
+            throw new IllegalStateException("Engine context has not been created yet");
+        }
+        return engineContext;
+    }
+
+    LayerExecutionContext withEngineContext(EngineContext engineContext) {
+        return new LayerExecutionContext(listener, configurationParameters, engineContext, layers, retainedParents, prefetch);
+    }
+
+    LayerExecutionContext withLayers(Map<TestDescriptor, Object> layers, List<String> retainedParents, @Nullable LayerPrefetch prefetch) {
+        return new LayerExecutionContext(listener, configurationParameters, engineContext, new ConcurrentHashMap<>(layers), retainedParents, prefetch);
+    }
+
+    @Nullable Object layer(TestDescriptor descriptor) {
+        return layers.remove(descriptor);
+    }
+
+    List<String> retainedParents() {
+        return retainedParents;
+    }
+
+    @Nullable LayerPrefetch prefetch() {
+        return prefetch;
+    }
+}
@@ -0,0 +1,129 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+final class LayerPrefetch implements AutoCloseable {
+    private final List<Layer> layers;
+    private final int depth;
+    private final Executor executor;
+    private final Factory factory;
+    private final Map<LayerBuilder, CompletableFuture<Built>> started = new IdentityHashMap<>();
+    private final Set<LayerBuilder> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int next;
+    private boolean closed;
+
+    record Layer(LayerBuilder builder, Path path, LayerConfigurationOptions options) {}
+
+    record Built(LayerBuilder.LayerInfo info, long metaspaceBefore) {}
+
+    interface Factory {
+        Built build(Layer layer) throws IOException;
+    }
+
+    LayerPrefetch(List<Layer> layers, int depth, Executor executor, Factory factory) {
+        this.layers = new ArrayList<>(layers);
+        this.depth = depth;
+        this.executor = executor;
+        this.factory = factory;
+    }
+
+    Built take(Layer layer) throws IOException {
+        CompletableFuture<Built> future;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Layers are no longer being prefetched");
+            }
+            taken.add(layer.builder());
+            future = started.remove(layer.builder());
+            var index = indexOf(layer.builder());
+            if (index != -1) {
+                var end = Math.min(layers.size(), index + 1 + depth);
+                for (int i = next; i < end; i++) {
+                    var ahead = layers.get(i);
+                    if (!taken.contains(ahead.builder()) && !started.containsKey(ahead.builder())) {
+                        started.put(ahead.builder(), CompletableFuture.supplyAsync(() -> {
+                            try {
+                                return factory.build(ahead);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }, executor));
+                    }
+                }
+                next = Math.max(next, end);
+            }
+        }
+        if (future == null) {
+            return factory.build(layer);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private int indexOf(LayerBuilder builder) {
+        for (int i = 0; i < layers.size(); i++) {
+            if (layers.get(i).builder() == builder) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<CompletableFuture<Built>> remaining;
+        synchronized (this) {
+            closed = true;
+            remaining = new ArrayList<>(started.values());
+            started.clear();
+            layers.clear();
+            taken.clear();
+        }
+        @Nullable IOException failure = null;
+        for (var future : remaining) {
+            Built built;
+            try {
+                built = future.join();
+            } catch (CompletionException e) {
+                // Nothing was defined, and the failure belongs to a layer that never ran
+                continue;
+            }
+            try {
+                built.info().close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+final class LayerTestClassFilter implements Predicate<String> {
+    private static final String DESCRIPTOR = "L" + LayerTest.class.getName().replace('.', '/') + ";";
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    interface ClassFiles {
+        @Nullable InputStream open(String path) throws IOException;
+    }
+
+    private final ClassFiles classFiles;
+    private final Map<String, Boolean> candidates = new HashMap<>();
+
+    LayerTestClassFilter(ClassFiles classFiles) {
+        this.classFiles = classFiles;
+    }
+
+    void assumeCandidate(String className) {
+        candidates.put(className.replace('.', '/'), true);
+    }
+
+    @Override
+    public boolean test(String className) {
+        return isCandidate(className.replace('.', '/'));
+    }
+
+    private boolean isCandidate(String internalName) {
+        var known = candidates.get(internalName);
+        if (known != null) {
+            return known;
+        }
+        // Guards against cycles in malformed hierarchies; replaced once the class has been read
+        candidates.put(internalName, false);
+        boolean result;
+        try {
+            result = read(internalName);
+        } catch (IOException | RuntimeException e) {
+            result = true;
+        }
+        candidates.put(internalName, result);
+        return result;
+    }
+
+    private boolean read(String internalName) throws IOException {
+        ClassInfo info;
+        try (var stream = classFiles.open(internalName + ".class")) {
+            if (stream == null) {
+                // Platform classes never declare layer tests, but anything else we cannot find might
+                return !internalName.startsWith("java/");
+            }
+            info = parse(new DataInputStream(new BufferedInputStream(stream)));
+        }
+        if (info.annotated()) {
+            return true;
+        }
+        for (var supertype : info.supertypes()) {
+            if (isCandidate(supertype)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record ClassInfo(boolean annotated, List<String> supertypes) {}
+
+    private static ClassInfo parse(DataInputStream in) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        var count = in.readUnsignedShort();
+        var utf8 = new String[count];
+        var classNames = new int[count];
+        var mentioned = false;
+        for (int i = 1; i < count; i++) {
+            var tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> {
+                    utf8[i] = in.readUTF();
+                    mentioned |= utf8[i].equals(DESCRIPTOR);
+                }
+                case 7 -> classNames[i] = in.readUnsignedShort();
+                case 8, 16, 19, 20 -> in.skipNBytes(2);
+                case 15 -> in.skipNBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipNBytes(4);
+                case 5, 6 -> {
+                    in.skipNBytes(8);
+                    // Longs and doubles take up two entries
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        var supertypes = new ArrayList<String>();
+        var superClass = in.readUnsignedShort();
+        if (superClass != 0) {
+            supertypes.add(utf8[classNames[superClass]]);
+        }
+        var interfaces = in.readUnsignedShort();
+        for (int i = 0; i < interfaces; i++) {
+            supertypes.add(utf8[classNames[in.readUnsignedShort()]]);
+        }
+        if (!mentioned) {
+            return new ClassInfo(false, supertypes);
+        }
+        skipMembers(in);
+        var methods = in.readUnsignedShort();
+        for (int i = 0; i < methods; i++) {
+            in.skipNBytes(6);
+            var attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                var name = utf8[in.readUnsignedShort()];
+                var length = in.readInt();
+                if (!RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+                    in.skipNBytes(Integer.toUnsignedLong(length));
+                    continue;
+                }
+                var annotations = in.readUnsignedShort();
+                for (int k = 0; k < annotations; k++) {
+                    if (readAnnotation(in, utf8)) {
+                        return new ClassInfo(true, supertypes);
+                    }
+                }
+            }
+        }
+        return new ClassInfo(false, supertypes);
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        var members = in.readUnsignedShort();
+        for (int i = 0; i < members; i++) {
+            in.skipNBytes(6);
+            var attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                in.skipNBytes(2);
+                in.skipNBytes(Integer.toUnsignedLong(in.readInt()));
+            }
+        }
+    }
+
+    private static boolean readAnnotation(DataInputStream in, String[] utf8) throws IOException {
+        var type = utf8[in.readUnsignedShort()];
+        var pairs = in.readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            in.skipNBytes(2);
+            skipElementValue(in, utf8);
+        }
+        return DESCRIPTOR.equals(type);
+    }
+
+    private static void skipElementValue(DataInputStream in, String[] utf8) throws IOException {
+        var tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's', 'c' -> in.skipNBytes(2);
+            case 'e' -> in.skipNBytes(4);
+            case '@' -> readAnnotation(in, utf8);
+            case '[' -> {
+                var values = in.readUnsignedShort();
+                for (int i = 0; i < values; i++) {
+                    skipElementValue(in, utf8);
+                }
+            }
+            default -> throw new IOException("Unknown element value tag " + (char) tag);
+        }
+    }
+}
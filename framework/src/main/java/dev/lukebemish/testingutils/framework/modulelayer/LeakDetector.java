@@ -0,0 +1,265 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.platform.engine.TestDescriptor;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+final class LeakDetector {
+    private static final int COLLECTIONS = 5;
+    private static final long COLLECTION_WAIT_MILLIS = 100;
+    private static final int MAX_SEARCHED = 200_000;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Set<Tracked> tracked = ConcurrentHashMap.newKeySet();
+
+    private static final class Tracked extends PhantomReference<Object> {
+        private final @Nullable String owner;
+        private final String description;
+        private final List<String> modules;
+        private final WeakReference<Object> target;
+
+        private Tracked(Object target, ReferenceQueue<Object> queue, @Nullable String owner, String description, List<String> modules) {
+            super(target, queue);
+            this.owner = owner;
+            this.description = description;
+            this.modules = modules;
+            this.target = new WeakReference<>(target);
+        }
+
+        private boolean ownedBy(@Nullable String owner) {
+            return owner == null || owner.equals(this.owner);
+        }
+    }
+
+    record Leak(String description, boolean loader, @Nullable String path) {
+        String message() {
+            var released = loader ? " was not unloaded" : " was not collected";
+            if (path == null) {
+                return description + released + "; no path to it was found from live threads, test classes, or test descriptors, so it may be held by a thread-local or native reference";
+            }
+            return description + released + "; it is retained by " + path;
+        }
+    }
+
+    void track(@Nullable String owner, String description, List<String> modules, Object target) {
+        tracked.add(new Tracked(target, queue, owner, description, modules));
+    }
+
+    List<Leak> checkpoint(@Nullable String owner, List<Object> roots) {
+        drain();
+        for (int i = 0; i < COLLECTIONS && tracked.stream().anyMatch(ref -> ref.ownedBy(owner)); i++) {
+            System.gc();
+            try {
+                var next = queue.remove(COLLECTION_WAIT_MILLIS);
+                if (next != null) {
+                    tracked.remove(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            drain();
+        }
+        var leaks = new ArrayList<Leak>();
+        for (var ref : List.copyOf(tracked)) {
+            if (!ref.ownedBy(owner)) {
+                continue;
+            }
+            tracked.remove(ref);
+            var target = ref.target.get();
+            if (target == null) {
+                continue;
+            }
+            leaks.add(new Leak(ref.description, target instanceof ClassLoader, findPath(target, ref.modules, roots)));
+        }
+        return leaks;
+    }
+
+    private void drain() {
+        Reference<?> next;
+        while ((next = queue.poll()) != null) {
+            tracked.remove(next);
+        }
+    }
+
+    private record Step(Object value, @Nullable Step from, String label, boolean initialized) {}
+
+    private static @Nullable String findPath(Object target, List<String> modules, List<Object> roots) {
+        var visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        var pending = new ArrayDeque<Step>();
+        for (var entry : Thread.getAllStackTraces().entrySet()) {
+            var thread = entry.getKey();
+            for (var frame : entry.getValue()) {
+                if (frame.getModuleName() != null && modules.contains(frame.getModuleName())) {
+                    return "thread \"" + thread.getName() + "\", which is running " + frame;
+                }
+            }
+            if (visited.add(thread)) {
+                pending.add(new Step(thread, null, "thread \"" + thread.getName() + "\"", true));
+            }
+        }
+        for (var root : roots) {
+            if (visited.add(root)) {
+                pending.add(new Step(root, null, describe(root), true));
+            }
+        }
+        while (!pending.isEmpty() && visited.size() < MAX_SEARCHED) {
+            var step = pending.poll();
+            if (retains(step.value(), target)) {
+                return render(step);
+            }
+            references(step, (label, value) -> {
+                if (value instanceof Class<?> clazz) {
+                    // Reading static fields could initialize the class, so they are only read through its instances
+                    if (clazz.getClassLoader() == target) {
+                        pending.addFirst(new Step(value, step, label, false));
+                    }
+                } else if (visited.add(value)) {
+                    pending.add(new Step(value, step, label, false));
+                }
+            });
+            if (!(step.value() instanceof Class<?>)) {
+                var clazz = step.value().getClass();
+                if (visited.add(clazz)) {
+                    pending.add(new Step(clazz, step, "getClass()", true));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean retains(Object value, Object target) {
+        if (value == target) {
+            return true;
+        } else if (!(target instanceof ClassLoader)) {
+            return false;
+        } else if (value.getClass().getClassLoader() == target) {
+            return true;
+        }
+        if (value instanceof Class<?> clazz) {
+            return clazz.getClassLoader() == target;
+        } else if (value instanceof Module module) {
+            return module.getClassLoader() == target;
+        } else if (value instanceof ModuleLayer layer) {
+            return layer.modules().stream().anyMatch(module -> module.getClassLoader() == target);
+        }
+        return false;
+    }
+
+    private static void references(Step step, BiConsumer<String, @Nullable Object> consumer) {
+        var value = step.value();
+        BiConsumer<String, @Nullable Object> nonNull = (label, reference) -> {
+            if (reference != null) {
+                consumer.accept(label, reference);
+            }
+        };
+        if (value instanceof Reference<?>) {
+            return;
+        }
+        if (value instanceof Class<?> clazz) {
+            if (step.initialized()) {
+                fields(clazz, null, nonNull);
+            }
+            return;
+        }
+        if (value instanceof Object[] array) {
+            for (int i = 0; i < array.length; i++) {
+                nonNull.accept("[" + i + "]", array[i]);
+            }
+            return;
+        } else if (value.getClass().isArray()) {
+            return;
+        }
+        try {
+            if (value instanceof Thread thread) {
+                nonNull.accept(".contextClassLoader", thread.getContextClassLoader());
+            } else if (value instanceof TestDescriptor descriptor) {
+                for (var child : descriptor.getChildren()) {
+                    nonNull.accept(" child", child);
+                }
+            } else if (value instanceof Map<?, ?> map) {
+                for (var entry : map.entrySet()) {
+                    nonNull.accept("[key]", entry.getKey());
+                    var key = entry.getKey() instanceof String || entry.getKey() instanceof Number ? entry.getKey() : "value";
+                    nonNull.accept("[" + key + "]", entry.getValue());
+                }
+            } else if (value instanceof Collection<?> collection) {
+                int i = 0;
+                for (var element : collection) {
+                    nonNull.accept("[" + i++ + "]", element);
+                }
+            } else if (value instanceof Optional<?> optional) {
+                nonNull.accept(".get()", optional.orElse(null));
+            } else if (value instanceof AtomicReference<?> reference) {
+                nonNull.accept(".get()", reference.get());
+            }
+        } catch (RuntimeException ignored) {
+            // Modified concurrently, or a collection that cannot be iterated; whatever was seen is still searched
+        }
+        for (var clazz = value.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            fields(clazz, value, nonNull);
+        }
+    }
+
+    private static void fields(Class<?> clazz, @Nullable Object instance, BiConsumer<String, @Nullable Object> consumer) {
+        Field[] fields;
+        try {
+            fields = clazz.getDeclaredFields();
+        } catch (LinkageError e) {
+            return;
+        }
+        for (var field : fields) {
+            if (field.getType().isPrimitive() || Modifier.isStatic(field.getModifiers()) != (instance == null)) {
+                continue;
+            }
+            try {
+                if (field.trySetAccessible()) {
+                    var label = instance == null ? " static " + clazz.getName() + "." + field.getName() : "." + field.getName();
+                    consumer.accept(label, field.get(instance));
+                }
+            } catch (RuntimeException | IllegalAccessException ignored) {
+                // Not open to this module
+            }
+        }
+    }
+
+    private static String render(Step step) {
+        var steps = new ArrayList<Step>();
+        for (Step next = step; next != null; next = next.from()) {
+            steps.add(next);
+        }
+        Collections.reverse(steps);
+        var builder = new StringBuilder(steps.get(0).label());
+        for (var next : steps.subList(1, steps.size())) {
+            builder.append(" -> ").append(next.label().strip()).append(" (").append(describe(next.value())).append(')');
+        }
+        return builder.toString();
+    }
+
+    private static String describe(Object value) {
+        if (value instanceof Class<?> clazz) {
+            return "class " + clazz.getName();
+        } else if (value instanceof TestDescriptor descriptor) {
+            return "test descriptor " + descriptor.getUniqueId();
+        }
+        return value.getClass().getName();
+    }
+}
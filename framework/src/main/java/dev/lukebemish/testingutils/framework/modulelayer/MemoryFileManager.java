@@ -0,0 +1,325 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, ModuleLocation> sourceLocations = new LinkedHashMap<>();
+    private final Map<String, ModuleLocation> outputLocations = new LinkedHashMap<>();
+    private final Map<String, ModuleLocation> upstreamLocations = new LinkedHashMap<>();
+
+    MemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    // Identity-based, as javac keys its own tables by location
+    private static final class ModuleLocation implements Location {
+        private final String moduleName;
+        private final StandardLocation parent;
+        private final Map<String, JavaFileObject> files;
+
+        private ModuleLocation(String moduleName, StandardLocation parent, Map<String, JavaFileObject> files) {
+            this.moduleName = moduleName;
+            this.parent = parent;
+            this.files = files;
+        }
+
+        String moduleName() {
+            return moduleName;
+        }
+
+        StandardLocation parent() {
+            return parent;
+        }
+
+        Map<String, JavaFileObject> files() {
+            return files;
+        }
+
+        @Override
+        public String getName() {
+            return parent.getName() + "[" + moduleName + "]";
+        }
+
+        @Override
+        public boolean isOutputLocation() {
+            return parent.isOutputLocation();
+        }
+    }
+
+    void setModulePath(List<Path> modulePath) throws IOException {
+        fileManager.setLocationFromPaths(StandardLocation.MODULE_PATH, modulePath);
+    }
+
+    void reset() {
+        sourceLocations.clear();
+        outputLocations.clear();
+        upstreamLocations.clear();
+    }
+
+    JavaFileObject addSource(String moduleName, String className, String contents) {
+        var location = sourceLocations.computeIfAbsent(moduleName, name -> {
+            outputLocations.put(name, new ModuleLocation(name, StandardLocation.CLASS_OUTPUT, new LinkedHashMap<>()));
+            return new ModuleLocation(name, StandardLocation.MODULE_SOURCE_PATH, new LinkedHashMap<>());
+        });
+        var file = new SourceFile(moduleName, className, contents);
+        location.files().put(className, file);
+        return file;
+    }
+
+    void addUpstream(MemoryModule module) {
+        var files = new LinkedHashMap<String, JavaFileObject>();
+        for (var entry : module.entries().entrySet()) {
+            var path = entry.getKey();
+            if (path.endsWith(JavaFileObject.Kind.CLASS.extension)) {
+                var className = path.substring(0, path.length() - JavaFileObject.Kind.CLASS.extension.length()).replace('/', '.');
+                files.put(className, new ClassInput(module.name(), className, entry.getValue()));
+            }
+        }
+        upstreamLocations.put(module.name(), new ModuleLocation(module.name(), StandardLocation.MODULE_PATH, files));
+    }
+
+    @Nullable String moduleOf(FileObject file) {
+        return file instanceof SourceFile sourceFile ? sourceFile.moduleName : null;
+    }
+
+    Map<String, Map<String, byte[]>> outputs() {
+        var result = new LinkedHashMap<String, Map<String, byte[]>>();
+        for (var location : outputLocations.values()) {
+            var entries = new LinkedHashMap<String, byte[]>();
+            for (var file : location.files().values()) {
+                var output = (ClassOutput) file;
+                entries.put(output.className.replace('.', '/') + JavaFileObject.Kind.CLASS.extension, output.bytes.toByteArray());
+            }
+            result.put(location.moduleName(), entries);
+        }
+        return result;
+    }
+
+    private @Nullable ModuleLocation own(Location location) {
+        return location instanceof ModuleLocation moduleLocation ? moduleLocation : null;
+    }
+
+    @Override
+    public boolean hasLocation(Location location) {
+        if (location == StandardLocation.MODULE_SOURCE_PATH || location == StandardLocation.CLASS_OUTPUT) {
+            return true;
+        }
+        return own(location) != null || super.hasLocation(location);
+    }
+
+    @Override
+    public Location getLocationForModule(Location location, String moduleName) throws IOException {
+        ModuleLocation found = null;
+        if (location == StandardLocation.MODULE_SOURCE_PATH) {
+            found = sourceLocations.get(moduleName);
+        } else if (location == StandardLocation.CLASS_OUTPUT) {
+            found = outputLocations.get(moduleName);
+        } else if (location == StandardLocation.MODULE_PATH) {
+            found = upstreamLocations.get(moduleName);
+        }
+        if (found != null) {
+            return found;
+        }
+        return super.getLocationForModule(location, moduleName);
+    }
+
+    @Override
+    public @Nullable Location getLocationForModule(Location location, JavaFileObject fileObject) throws IOException {
+        if (fileObject instanceof SourceFile sourceFile) {
+            return location == StandardLocation.MODULE_SOURCE_PATH ? sourceLocations.get(sourceFile.moduleName) : null;
+        } else if (fileObject instanceof ClassInput || fileObject instanceof ClassOutput) {
+            return null;
+        }
+        return super.getLocationForModule(location, fileObject);
+    }
+
+    @Override
+    public Iterable<Set<Location>> listLocationsForModules(Location location) throws IOException {
+        if (location == StandardLocation.MODULE_SOURCE_PATH) {
+            return List.of(Set.copyOf(sourceLocations.values()));
+        } else if (location == StandardLocation.CLASS_OUTPUT) {
+            return List.of(Set.copyOf(outputLocations.values()));
+        } else if (location == StandardLocation.MODULE_PATH && !upstreamLocations.isEmpty()) {
+            var locations = new ArrayList<Set<Location>>();
+            locations.add(Set.copyOf(upstreamLocations.values()));
+            super.listLocationsForModules(location).forEach(locations::add);
+            return locations;
+        }
+        return super.listLocationsForModules(location);
+    }
+
+    @Override
+    public String inferModuleName(Location location) throws IOException {
+        var own = own(location);
+        if (own != null) {
+            return own.moduleName();
+        }
+        return super.inferModuleName(location);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+        var own = own(location);
+        if (own == null) {
+            return super.list(location, packageName, kinds, recurse);
+        }
+        var result = new ArrayList<JavaFileObject>();
+        for (var entry : own.files().entrySet()) {
+            var file = entry.getValue();
+            if (!kinds.contains(file.getKind())) {
+                continue;
+            }
+            var lastDot = entry.getKey().lastIndexOf('.');
+            var filePackage = lastDot == -1 ? "" : entry.getKey().substring(0, lastDot);
+            if (filePackage.equals(packageName) || (recurse && (packageName.isEmpty() || filePackage.startsWith(packageName + ".")))) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof MemoryFile memoryFile) {
+            return memoryFile.className();
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    @Override
+    public @Nullable JavaFileObject getJavaFileForInput(Location location, String className, JavaFileObject.Kind kind) throws IOException {
+        var own = own(location);
+        if (own != null) {
+            var file = own.files().get(className);
+            return file != null && file.getKind() == kind ? file : null;
+        }
+        return super.getJavaFileForInput(location, className, kind);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+        var own = own(location);
+        if (own != null && own.parent() == StandardLocation.CLASS_OUTPUT && kind == JavaFileObject.Kind.CLASS) {
+            var file = new ClassOutput(own.moduleName(), className);
+            own.files().put(className, file);
+            return file;
+        }
+        return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        if (a instanceof MemoryFile || b instanceof MemoryFile) {
+            return a.equals(b);
+        }
+        return super.isSameFile(a, b);
+    }
+
+    @Override
+    public boolean contains(Location location, FileObject fileObject) throws IOException {
+        var own = own(location);
+        if (own != null) {
+            return fileObject instanceof MemoryFile memoryFile && own.files().get(memoryFile.className()) == fileObject;
+        } else if (fileObject instanceof MemoryFile) {
+            return false;
+        }
+        return super.contains(location, fileObject);
+    }
+
+    private interface MemoryFile {
+        String className();
+    }
+
+    private static URI uri(String moduleName, String className, JavaFileObject.Kind kind) {
+        return URI.create("memory:///" + moduleName + "/" + className.replace('.', '/') + kind.extension);
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject implements MemoryFile {
+        private final String moduleName;
+        private final String className;
+        private final String contents;
+
+        private SourceFile(String moduleName, String className, String contents) {
+            super(uri(moduleName, className, Kind.SOURCE), Kind.SOURCE);
+            this.moduleName = moduleName;
+            this.className = className;
+            this.contents = contents;
+        }
+
+        @Override
+        public String className() {
+            return className;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return contents;
+        }
+    }
+
+    private static final class ClassInput extends SimpleJavaFileObject implements MemoryFile {
+        private final String className;
+        private final byte[] bytes;
+
+        private ClassInput(String moduleName, String className, byte[] bytes) {
+            super(uri(moduleName, className, Kind.CLASS), Kind.CLASS);
+            this.className = className;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String className() {
+            return className;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
+    private static final class ClassOutput extends SimpleJavaFileObject implements MemoryFile {
+        private final String className;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private ClassOutput(String moduleName, String className) {
+            super(uri(moduleName, className, Kind.CLASS), Kind.CLASS);
+            this.className = className;
+        }
+
+        @Override
+        public String className() {
+            return className;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            bytes.reset();
+            return bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes.toByteArray());
+        }
+    }
+}
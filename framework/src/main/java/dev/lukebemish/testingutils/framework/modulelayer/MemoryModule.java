@@ -0,0 +1,248 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import dev.lukebemish.testingutils.framework.modulelayer.internal.MemoryUrlStreamHandlerProvider;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+final class MemoryModule {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final String name;
+    private final String id;
+    private final Map<String, byte[]> entries;
+    private final Map<String, External> externals;
+
+    record External(@Nullable Path path, LayerBuilder.ModuleBuilder.ResourceSource source, long id) {
+        private static final AtomicLong NEXT_ID = new AtomicLong();
+
+        static External of(Path path) {
+            return new External(path, () -> Files.newInputStream(path), NEXT_ID.incrementAndGet());
+        }
+
+        static External of(LayerBuilder.ModuleBuilder.ResourceSource source) {
+            return new External(null, source, NEXT_ID.incrementAndGet());
+        }
+
+        InputStream open() throws IOException {
+            return source.open();
+        }
+    }
+
+    MemoryModule(String name, Map<String, byte[]> entries) {
+        this(name, entries, Map.of());
+    }
+
+    MemoryModule(String name, Map<String, byte[]> entries, Map<String, External> externals) {
+        this.name = name;
+        this.id = Long.toString(NEXT_ID.incrementAndGet());
+        this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+        this.externals = Collections.unmodifiableMap(new LinkedHashMap<>(externals));
+    }
+
+    String name() {
+        return name;
+    }
+
+    Map<String, byte[]> entries() {
+        return entries;
+    }
+
+    Map<String, External> externals() {
+        return externals;
+    }
+
+    byte @Nullable [] entry(String path) {
+        return entries.get(path);
+    }
+
+    private @Nullable InputStream openEntry(String path) throws IOException {
+        var bytes = entries.get(path);
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        var external = externals.get(path);
+        return external == null ? null : external.open();
+    }
+
+    private Stream<String> names() {
+        return Stream.concat(entries.keySet().stream(), externals.keySet().stream().filter(path -> !entries.containsKey(path)));
+    }
+
+    Set<String> packages() {
+        return packages(names());
+    }
+
+    static Set<String> packages(Stream<String> names) {
+        var packages = new HashSet<String>();
+        for (var path : (Iterable<String>) names::iterator) {
+            var lastSlash = path.lastIndexOf('/');
+            if (lastSlash == -1 || path.startsWith("META-INF/")) {
+                continue;
+            }
+            var packageName = path.substring(0, lastSlash).replace('/', '.');
+            if (isPackageName(packageName)) {
+                packages.add(packageName);
+            }
+        }
+        return packages;
+    }
+
+    private static boolean isPackageName(String name) {
+        for (var part : name.split("\\.", -1)) {
+            if (part.isEmpty() || !Character.isJavaIdentifierStart(part.codePointAt(0))) {
+                return false;
+            }
+            if (!part.codePoints().skip(1).allMatch(Character::isJavaIdentifierPart)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    ModuleDescriptor descriptor() {
+        var moduleInfo = entries.get("module-info.class");
+        if (moduleInfo == null) {
+            throw new IllegalStateException("Module " + name + " has no module-info.class");
+        }
+        return ModuleDescriptor.read(ByteBuffer.wrap(moduleInfo), this::packages);
+    }
+
+    URI uri(String path) {
+        try {
+            return new URI(MemoryUrlStreamHandlerProvider.SCHEME, null, "/" + id + "/" + path, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private int registrations;
+
+    synchronized void register() {
+        if (registrations++ == 0) {
+            MemoryUrlStreamHandlerProvider.register(id, this::openEntry);
+        }
+    }
+
+    synchronized void unregister() {
+        if (registrations > 0 && --registrations == 0) {
+            MemoryUrlStreamHandlerProvider.unregister(id);
+        }
+    }
+
+    ModuleReference reference() {
+        return new ModuleReference(descriptor(), uri("")) {
+            @Override
+            public ModuleReader open() {
+                return new Reader();
+            }
+        };
+    }
+
+    static ModuleFinder finder(List<MemoryModule> modules) {
+        var references = new HashMap<String, ModuleReference>();
+        for (var module : modules) {
+            references.put(module.name, module.reference());
+        }
+        var all = Set.copyOf(references.values());
+        return new ModuleFinder() {
+            @Override
+            public Optional<ModuleReference> find(String name) {
+                return Optional.ofNullable(references.get(name));
+            }
+
+            @Override
+            public Set<ModuleReference> findAll() {
+                return all;
+            }
+        };
+    }
+
+    private final class Reader implements ModuleReader {
+        private volatile boolean closed;
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("ModuleReader for " + name + " is closed");
+            }
+        }
+
+        @Override
+        public Optional<URI> find(String name) throws IOException {
+            ensureOpen();
+            if (entries.containsKey(name)) {
+                return Optional.of(uri(name));
+            }
+            var external = externals.get(name);
+            if (external == null) {
+                return Optional.empty();
+            }
+            var path = external.path();
+            return Optional.of(path != null ? path.toUri() : uri(name));
+        }
+
+        @Override
+        public Optional<InputStream> open(String name) throws IOException {
+            ensureOpen();
+            return Optional.ofNullable(openEntry(name));
+        }
+
+        @Override
+        public Optional<ByteBuffer> read(String name) throws IOException {
+            ensureOpen();
+            var bytes = entries.get(name);
+            if (bytes != null) {
+                return Optional.of(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+            }
+            var external = externals.get(name);
+            if (external == null) {
+                return Optional.empty();
+            }
+            var path = external.path();
+            if (path != null) {
+                // Mapped rather than copied onto the heap; the mapping outlives the channel
+                try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    return Optional.of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            }
+            // Other sources are only streams, and read must return the whole resource at once
+            try (var stream = external.open()) {
+                return Optional.of(ByteBuffer.wrap(stream.readAllBytes()));
+            }
+        }
+
+        @Override
+        public Stream<String> list() throws IOException {
+            ensureOpen();
+            return names();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.ModuleDescriptor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class ModuleInfoWriter {
+    private static final int UTF8 = 1;
+    private static final int CLASS = 7;
+    private static final int MODULE = 19;
+    private static final int PACKAGE = 20;
+
+    private final List<byte[]> constants = new ArrayList<>();
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    private ModuleInfoWriter() {}
+
+    static byte[] write(ModuleDescriptor descriptor) {
+        try {
+            return new ModuleInfoWriter().writeClass(descriptor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] writeClass(ModuleDescriptor descriptor) throws IOException {
+        var module = new ByteArrayOutputStream();
+        var out = new DataOutputStream(module);
+        out.writeShort(constant(MODULE, descriptor.name()));
+        out.writeShort(flags(descriptor.modifiers()));
+        out.writeShort(descriptor.rawVersion().map(this::utf8).orElse(0));
+        out.writeShort(descriptor.requires().size());
+        for (var requires : descriptor.requires()) {
+            out.writeShort(constant(MODULE, requires.name()));
+            out.writeShort(flags(requires.modifiers()));
+            out.writeShort(requires.rawCompiledVersion().map(this::utf8).orElse(0));
+        }
+        out.writeShort(descriptor.exports().size());
+        for (var exports : descriptor.exports()) {
+            writeTargets(out, exports.source(), flags(exports.modifiers()), exports.targets());
+        }
+        out.writeShort(descriptor.opens().size());
+        for (var opens : descriptor.opens()) {
+            writeTargets(out, opens.source(), flags(opens.modifiers()), opens.targets());
+        }
+        out.writeShort(descriptor.uses().size());
+        for (var service : descriptor.uses()) {
+            out.writeShort(constant(CLASS, service.replace('.', '/')));
+        }
+        out.writeShort(descriptor.provides().size());
+        for (var provides : descriptor.provides()) {
+            out.writeShort(constant(CLASS, provides.service().replace('.', '/')));
+            out.writeShort(provides.providers().size());
+            for (var provider : provides.providers()) {
+                out.writeShort(constant(CLASS, provider.replace('.', '/')));
+            }
+        }
+
+        var packages = new ByteArrayOutputStream();
+        var packagesOut = new DataOutputStream(packages);
+        packagesOut.writeShort(descriptor.packages().size());
+        for (var packageName : descriptor.packages()) {
+            packagesOut.writeShort(constant(PACKAGE, packageName.replace('.', '/')));
+        }
+
+        var thisClass = constant(CLASS, "module-info");
+        var moduleName = utf8("Module");
+        var packagesName = utf8("ModulePackages");
+
+        var bytes = new ByteArrayOutputStream();
+        var classOut = new DataOutputStream(bytes);
+        classOut.writeInt(0xCAFEBABE);
+        classOut.writeShort(0);
+        classOut.writeShort(53);
+        classOut.writeShort(constants.size() + 1);
+        for (var constant : constants) {
+            classOut.write(constant);
+        }
+        classOut.writeShort(0x8000);
+        classOut.writeShort(thisClass);
+        classOut.writeShort(0);
+        classOut.writeShort(0);
+        classOut.writeShort(0);
+        classOut.writeShort(0);
+        classOut.writeShort(2);
+        classOut.writeShort(moduleName);
+        classOut.writeInt(module.size());
+        module.writeTo(classOut);
+        classOut.writeShort(packagesName);
+        classOut.writeInt(packages.size());
+        packages.writeTo(classOut);
+        classOut.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeTargets(DataOutputStream out, String packageName, int flags, Set<String> targets) throws IOException {
+        out.writeShort(constant(PACKAGE, packageName.replace('.', '/')));
+        out.writeShort(flags);
+        out.writeShort(targets.size());
+        for (var target : targets) {
+            out.writeShort(constant(MODULE, target));
+        }
+    }
+
+    private static int flags(Set<? extends Enum<?>> modifiers) {
+        var flags = 0;
+        for (var modifier : modifiers) {
+            flags |= switch (modifier.name()) {
+                case "OPEN", "TRANSITIVE" -> 0x0020;
+                case "STATIC" -> 0x0040;
+                case "SYNTHETIC" -> 0x1000;
+                case "MANDATED" -> 0x8000;
+                default -> 0;
+            };
+        }
+        return flags;
+    }
+
+    private int utf8(String value) {
+        return indices.computeIfAbsent(UTF8 + ":" + value, key -> {
+            var bytes = new ByteArrayOutputStream();
+            try {
+                var out = new DataOutputStream(bytes);
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            constants.add(bytes.toByteArray());
+            return constants.size();
+        });
+    }
+
+    private int constant(int tag, String name) {
+        var existing = indices.get(tag + ":" + name);
+        if (existing != null) {
+            return existing;
+        }
+        var nameIndex = utf8(name);
+        constants.add(new byte[] {(byte) tag, (byte) (nameIndex >> 8), (byte) nameIndex});
+        indices.put(tag + ":" + name, constants.size());
+        return constants.size();
+    }
+}
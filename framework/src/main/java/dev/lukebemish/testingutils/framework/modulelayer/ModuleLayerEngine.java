@@ -1,35 +1,72 @@
 package dev.lukebemish.testingutils.framework.modulelayer;
 
 import com.google.auto.service.AutoService;
+import dev.lukebemish.testingutils.framework.modulelayer.internal.LayerTestIndex;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Named;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.api.parallel.ResourceLockTarget;
 import org.junit.platform.commons.support.AnnotationSupport;
 import org.junit.platform.commons.support.HierarchyTraversalMode;
 import org.junit.platform.commons.support.ReflectionSupport;
+import org.junit.platform.engine.ConfigurationParameters;
 import org.junit.platform.engine.EngineDiscoveryRequest;
-import org.junit.platform.engine.EngineExecutionListener;
 import org.junit.platform.engine.ExecutionRequest;
 import org.junit.platform.engine.TestDescriptor;
 import org.junit.platform.engine.TestEngine;
-import org.junit.platform.engine.TestExecutionResult;
 import org.junit.platform.engine.TestSource;
 import org.junit.platform.engine.UniqueId;
 import org.junit.platform.engine.discovery.ClassSelector;
 import org.junit.platform.engine.discovery.ClasspathRootSelector;
 import org.junit.platform.engine.discovery.ModuleSelector;
 import org.junit.platform.engine.discovery.PackageSelector;
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.engine.support.config.PrefixedConfigurationParameters;
 import org.junit.platform.engine.support.descriptor.AbstractTestDescriptor;
 import org.junit.platform.engine.support.descriptor.ClassSource;
 import org.junit.platform.engine.support.descriptor.EngineDescriptor;
 import org.junit.platform.engine.support.descriptor.MethodSource;
-
+import org.junit.platform.engine.support.hierarchical.ExclusiveResource;
+import org.junit.platform.engine.support.hierarchical.ForkJoinPoolHierarchicalTestExecutorService;
+import org.junit.platform.engine.support.hierarchical.HierarchicalTestEngine;
+import org.junit.platform.engine.support.hierarchical.HierarchicalTestExecutorService;
+import org.junit.platform.engine.support.hierarchical.Node;
+import org.junit.platform.engine.support.hierarchical.OpenTest4JAwareThrowableCollector;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.lang.module.ResolvedModule;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.joining;
@@ -41,12 +78,79 @@ public String getId() {
         return "module-layer-framework";
     }
 
-    private static final class ClassTestDescriptor extends AbstractTestDescriptor {
+    @Override
+    public void execute(ExecutionRequest request) {
+        new HierarchicalExecution().execute(request);
+    }
+
+    private static Node.ExecutionMode executionMode(AnnotatedElement element, Node.ExecutionMode defaultMode) {
+        return AnnotationSupport.findAnnotation(element, Execution.class)
+            .map(execution -> Node.ExecutionMode.valueOf(execution.value().name()))
+            .orElse(defaultMode);
+    }
+
+    private static Node.ExecutionMode executionMode(ConfigurationParameters parameters, String key, Node.ExecutionMode defaultMode) {
+        return parameters.get(key)
+            .map(value -> Node.ExecutionMode.valueOf(value.trim().toUpperCase(Locale.ROOT)))
+            .orElse(defaultMode);
+    }
+
+    private static Set<ExclusiveResource> exclusiveResources(AnnotatedElement element, ResourceLockTarget target) {
+        var resources = new LinkedHashSet<ExclusiveResource>();
+        if (target == ResourceLockTarget.SELF && AnnotationSupport.isAnnotated(element, Isolated.class)) {
+            resources.add(new ExclusiveResource(ExclusiveResource.GLOBAL_KEY, ExclusiveResource.LockMode.READ_WRITE));
+        }
+        for (var lock : AnnotationSupport.findRepeatableAnnotations(element, ResourceLock.class)) {
+            if (lock.target() == target && !lock.value().isBlank()) {
+                resources.add(new ExclusiveResource(lock.value(), lock.mode() == ResourceAccessMode.READ ? ExclusiveResource.LockMode.READ : ExclusiveResource.LockMode.READ_WRITE));
+            }
+        }
+        return resources;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> RuntimeException rethrow(Throwable throwable) throws T {
+        throw (T) throwable;
+    }
+
+    private static final class LayerEngineDescriptor extends EngineDescriptor implements Node<LayerExecutionContext> {
+        private LayerEngineDescriptor(UniqueId uniqueId, String displayName) {
+            super(uniqueId, displayName);
+        }
+
+        @Override
+        public LayerExecutionContext before(LayerExecutionContext context) {
+            return context.withEngineContext(new EngineContext(EngineConfiguration.from(context.configurationParameters())));
+        }
+
+        @Override
+        public void after(LayerExecutionContext context) {
+            var engineContext = context.engineContext();
+            try (engineContext) {
+                var roots = new ArrayList<Object>(List.of(this, engineContext));
+                for (var child : getChildren()) {
+                    roots.add(((ClassTestDescriptor) child).clazz);
+                }
+                reportLeaks(context, this, null, roots);
+                var cache = engineContext.cache();
+                if (cache != null) {
+                    context.listener().reportingEntryPublished(this, ReportEntry.from(Map.of(
+                        "testingutils.cache.hits", Long.toString(cache.hits()),
+                        "testingutils.cache.misses", Long.toString(cache.misses())
+                    )));
+                }
+            }
+        }
+    }
+
+    private static final class ClassTestDescriptor extends AbstractTestDescriptor implements Node<LayerExecutionContext> {
         private final Class<?> clazz;
+        private final ExecutionMode executionMode;
 
-        private ClassTestDescriptor(UniqueId uniqueId, String displayName, Class<?> clazz) {
+        private ClassTestDescriptor(UniqueId uniqueId, String displayName, Class<?> clazz, ExecutionMode defaultMode) {
             super(uniqueId, displayName);
             this.clazz = clazz;
+            this.executionMode = executionMode(clazz, defaultMode);
         }
 
         @Override
@@ -63,16 +167,140 @@ public boolean mayRegisterTests() {
         public Optional<TestSource> getSource() {
             return Optional.of(ClassSource.from(clazz));
         }
+
+        @Override
+        public ExecutionMode getExecutionMode() {
+            return executionMode;
+        }
+
+        @Override
+        public Set<ExclusiveResource> getExclusiveResources() {
+            return exclusiveResources(clazz, ResourceLockTarget.SELF);
+        }
+
+        @Override
+        public LayerExecutionContext before(LayerExecutionContext context) {
+            var engineContext = context.engineContext();
+            var instance = ReflectionSupport.newInstance(clazz);
+            var layers = new LinkedHashMap<TestDescriptor, Object>();
+            var toCompile = new LinkedHashMap<LayerBuilder, LayerConfigurationOptions>();
+            for (var childDescriptor : getChildren()) {
+                var layerMethodDescriptor = (LayerMethodDescriptor) childDescriptor;
+                try {
+                    layerMethodDescriptor.method.trySetAccessible();
+                    var result = layerMethodDescriptor.method.invoke(instance);
+                    var methodName = layerMethodDescriptor.method.getName();
+                    if (result instanceof LayerBuilder layerBuilder) {
+                        layers.put(childDescriptor, layerBuilder);
+                        layerBuilder.declaredBy(clazz.getName(), methodName);
+                        toCompile.putIfAbsent(layerBuilder, layerMethodDescriptor.options);
+                    } else {
+                        var variants = variants(result);
+                        layers.put(childDescriptor, variants);
+                        for (var variant : variants) {
+                            variant.getPayload().declaredBy(clazz.getName(), methodName + "[" + variant.getName() + "]");
+                            toCompile.putIfAbsent(variant.getPayload(), layerMethodDescriptor.options);
+                        }
+                    }
+                } catch (Throwable t) {
+                    layers.put(childDescriptor, t);
+                }
+            }
+            List<String> retainedParents = List.of();
+            try {
+                retainedParents = LayerBuilder.retainParents(toCompile, engineContext);
+                LayerBuilder.compileAll(toCompile, engineContext);
+            } catch (IOException | IllegalStateException ignored) {
+                // Reading a layer's files or sources failed, which will resurface when the affected layers are built
+            }
+            return context.withLayers(layers, retainedParents, prefetch(layers, engineContext));
+        }
+
+        private static @Nullable LayerPrefetch prefetch(Map<TestDescriptor, Object> layers, EngineContext engineContext) {
+            var executor = engineContext.prefetchExecutor();
+            if (executor == null || engineContext.configuration().precompileOutput() != null) {
+                return null;
+            }
+            var prefetched = new ArrayList<LayerPrefetch.Layer>();
+            for (var entry : layers.entrySet()) {
+                var descriptor = (LayerMethodDescriptor) entry.getKey();
+                if (entry.getValue() instanceof LayerBuilder layerBuilder) {
+                    prefetched.add(new LayerPrefetch.Layer(layerBuilder, descriptor.path(), descriptor.options));
+                } else if (entry.getValue() instanceof List<?> variants) {
+                    for (int i = 0; i < variants.size(); i++) {
+                        var variant = (Named<?>) variants.get(i);
+                        prefetched.add(new LayerPrefetch.Layer((LayerBuilder) variant.getPayload(), variantPath(descriptor.path(), i), descriptor.options));
+                    }
+                }
+            }
+            return new LayerPrefetch(prefetched, engineContext.configuration().prefetchDepth(), executor, layer -> buildLayer(layer, engineContext));
+        }
+
+        private static List<Named<LayerBuilder>> variants(@Nullable Object result) {
+            Stream<?> elements;
+            if (result instanceof Stream<?> stream) {
+                elements = stream;
+            } else if (result instanceof Collection<?> collection) {
+                elements = collection.stream();
+            } else {
+                throw new IllegalStateException("@LayerTest methods must return a LayerBuilder, or a Stream or Collection of Named<LayerBuilder>, but returned " + (result == null ? "null" : result.getClass().getName()));
+            }
+            try (elements) {
+                return elements.map(element -> {
+                    if (element instanceof Named<?> named && named.getPayload() instanceof LayerBuilder layerBuilder) {
+                        return Named.of(named.getName(), layerBuilder);
+                    }
+                    throw new IllegalStateException("Layer variants must be Named<LayerBuilder>, but found " + element);
+                }).toList();
+            }
+        }
+
+        @Override
+        public void after(LayerExecutionContext context) throws IOException {
+            IOException failure = null;
+            var prefetch = context.prefetch();
+            if (prefetch != null) {
+                try {
+                    prefetch.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            for (var key : context.retainedParents()) {
+                try {
+                    context.engineContext().sharedLayers().release(key);
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            var root = getParent().orElseThrow();
+            reportLeaks(context, this, clazz.getName(), List.of(root, context.engineContext(), clazz));
+            if (failure != null) {
+                throw failure;
+            }
+        }
     }
 
-    private static final class LayerMethodDescriptor extends AbstractTestDescriptor {
+    private static final class LayerMethodDescriptor extends AbstractTestDescriptor implements Node<LayerExecutionContext> {
         private final Method method;
         private final LayerConfigurationOptions options;
+        private final ExecutionMode executionMode;
+        private final ExecutionMode generatedExecutionMode;
+        private final @Nullable LayerBenchmark benchmark;
 
-        private LayerMethodDescriptor(UniqueId uniqueId, String displayName, Method method, LayerConfigurationOptions options) {
+        private LayerMethodDescriptor(UniqueId uniqueId, String displayName, Class<?> testClass, Method method, LayerConfigurationOptions options, ExecutionMode defaultMode) {
             super(uniqueId, displayName);
             this.method = method;
             this.options = options;
+            this.executionMode = executionMode(method, defaultMode);
+            this.generatedExecutionMode = defaultMode;
+            this.benchmark = AnnotationSupport.findAnnotation(method, LayerBenchmark.class)
+                .or(() -> AnnotationSupport.findAnnotation(testClass, LayerBenchmark.class))
+                .orElse(null);
         }
 
         @Override
@@ -89,14 +317,207 @@ public boolean mayRegisterTests() {
         public Optional<TestSource> getSource() {
             return Optional.of(MethodSource.from(method.getDeclaringClass(), method));
         }
+
+        @Override
+        public ExecutionMode getExecutionMode() {
+            return executionMode;
+        }
+
+        @Override
+        public Set<ExclusiveResource> getExclusiveResources() {
+            var resources = new HashSet<>(exclusiveResources(method, ResourceLockTarget.SELF));
+            // Generated tests are registered dynamically, so may not hold their own locks; the layer holds them instead
+            resources.addAll(exclusiveResources(method, ResourceLockTarget.CHILDREN));
+            resources.addAll(exclusiveResources(method.getDeclaringClass(), ResourceLockTarget.CHILDREN));
+            return resources;
+        }
+
+        @Override
+        public LayerExecutionContext execute(LayerExecutionContext context, DynamicTestExecutor dynamicTestExecutor) throws Exception {
+            var result = context.layer(this);
+            if (result instanceof Throwable t) {
+                throw rethrow(t);
+            }
+            var path = path();
+            if (result instanceof LayerBuilder layerBuilder) {
+                runLayer(this, layerBuilder, path, options, generatedExecutionMode, benchmark, context, dynamicTestExecutor);
+                return context;
+            }
+            @SuppressWarnings("unchecked") var variants = (List<Named<LayerBuilder>>) Objects.requireNonNull(result);
+            for (int i = 0; i < variants.size(); i++) {
+                var variant = variants.get(i);
+                var variantDescriptor = new LayerVariantDescriptor(
+                    getUniqueId().append("variant", "#" + (i + 1)),
+                    variant.getName(),
+                    variant.getPayload(),
+                    variantPath(path, i),
+                    this
+                );
+                addChild(variantDescriptor);
+                dynamicTestExecutor.execute(variantDescriptor);
+            }
+            dynamicTestExecutor.awaitFinished();
+            return context;
+        }
+
+        private Path path() {
+            return Paths.get(method.getDeclaringClass().getName(), method.getName());
+        }
     }
 
-    private static final class GeneratedClassDescriptor extends AbstractTestDescriptor {
-        private final Class<?> clazz;
+    private static Path variantPath(Path path, int index) {
+        return path.resolve(Integer.toString(index + 1));
+    }
 
-        private GeneratedClassDescriptor(UniqueId uniqueId, String displayName, Class<?> clazz) {
+    private static final class LayerVariantDescriptor extends AbstractTestDescriptor implements Node<LayerExecutionContext> {
+        private volatile @Nullable LayerBuilder layerBuilder;
+        private final Path path;
+        private final LayerMethodDescriptor parent;
+
+        private LayerVariantDescriptor(UniqueId uniqueId, String displayName, LayerBuilder layerBuilder, Path path, LayerMethodDescriptor parent) {
             super(uniqueId, displayName);
+            this.layerBuilder = layerBuilder;
+            this.path = path;
+            this.parent = parent;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.CONTAINER;
+        }
+
+        @Override
+        public boolean mayRegisterTests() {
+            return true;
+        }
+
+        @Override
+        public Optional<TestSource> getSource() {
+            return parent.getSource();
+        }
+
+        @Override
+        public ExecutionMode getExecutionMode() {
+            return parent.generatedExecutionMode;
+        }
+
+        @Override
+        public LayerExecutionContext execute(LayerExecutionContext context, DynamicTestExecutor dynamicTestExecutor) throws Exception {
+            var layerBuilder = this.layerBuilder;
+            if (layerBuilder == null) {
+                throw new IllegalStateException("Layer variant " + getDisplayName() + " has already been run");
+            }
+            this.layerBuilder = null;
+            runLayer(this, layerBuilder, path, parent.options, parent.generatedExecutionMode, parent.benchmark, context, dynamicTestExecutor);
+            return context;
+        }
+    }
+
+    private static void runLayer(TestDescriptor descriptor, LayerBuilder layerBuilder, Path path, LayerConfigurationOptions options, Node.ExecutionMode generatedExecutionMode, @Nullable LayerBenchmark benchmark, LayerExecutionContext context, Node.DynamicTestExecutor dynamicTestExecutor) throws Exception {
+        if (context.engineContext().configuration().precompileOutput() != null) {
+            layerBuilder.precompile(options, context.engineContext());
+            return;
+        }
+        var layer = new LayerPrefetch.Layer(layerBuilder, path, options);
+        var prefetch = context.prefetch();
+        var built = prefetch == null ? buildLayer(layer, context.engineContext()) : prefetch.take(layer);
+        var metaspaceBefore = built.metaspaceBefore();
+        try (var info = built.info()) {
+            var metaspacePeak = metaspaceUsed();
+            for (var clazz : info.classes()) {
+                var annotated = AnnotationSupport.findAnnotatedMethods(clazz, Test.class, HierarchyTraversalMode.TOP_DOWN);
+                if (annotated.isEmpty()) {
+                    continue;
+                }
+                var classDescriptor = new GeneratedClassDescriptor(
+                    descriptor.getUniqueId().append("class", clazz.getName()),
+                    clazz.getSimpleName(),
+                    clazz,
+                    annotated,
+                    layerBuilder,
+                    generatedExecutionMode,
+                    benchmark
+                );
+                descriptor.addChild(classDescriptor);
+                dynamicTestExecutor.execute(classDescriptor);
+            }
+            dynamicTestExecutor.awaitFinished();
+            metaspacePeak = Math.max(metaspacePeak, metaspaceUsed());
+            var entries = new LinkedHashMap<String, String>();
+            entries.put("testingutils.layer.compile-millis", Long.toString(TimeUnit.NANOSECONDS.toMillis(layerBuilder.compileNanos())));
+            entries.put("testingutils.layer.define-millis", Long.toString(TimeUnit.NANOSECONDS.toMillis(layerBuilder.defineNanos())));
+            entries.put("testingutils.layer.classes", Integer.toString(info.classes().size()));
+            entries.put("testingutils.layer.class-bytes", Long.toString(layerBuilder.classBytes()));
+            entries.put("testingutils.layer.metaspace-bytes", Long.toString(Math.max(0, metaspacePeak - metaspaceBefore)));
+            var sourceLines = layerBuilder.sourceLines();
+            if (!sourceLines.isEmpty()) {
+                entries.put("testingutils.layer.source-lines", sourceLines);
+            }
+            context.listener().reportingEntryPublished(descriptor, ReportEntry.from(entries));
+        }
+    }
+
+    private static LayerPrefetch.Built buildLayer(LayerPrefetch.Layer layer, EngineContext context) throws IOException {
+        var metaspaceBefore = metaspaceUsed();
+        return new LayerPrefetch.Built(layer.builder().build(layer.path(), layer.options(), context), metaspaceBefore);
+    }
+
+    private static void reportLeaks(LayerExecutionContext context, TestDescriptor descriptor, @Nullable String testClass, List<Object> roots) {
+        var leakDetector = context.engineContext().leakDetector();
+        if (leakDetector == null) {
+            return;
+        }
+        for (var leak : leakDetector.checkpoint(testClass, roots)) {
+            context.listener().reportingEntryPublished(descriptor, ReportEntry.from("testingutils.leak", leak.message()));
+        }
+    }
+
+    // Metaspace is shared by every layer, so this is only exact when layers are not built concurrently
+    private static long metaspaceUsed() {
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP && pool.getName().equals("Metaspace")) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static final class GeneratedClassDescriptor extends AbstractTestDescriptor implements Node<LayerExecutionContext> {
+        private final String className;
+        private volatile @Nullable LayerBuilder builder;
+        private final ExecutionMode defaultMode;
+        private final ExecutionMode executionMode;
+        private final @Nullable LayerBenchmark benchmark;
+        private volatile @Nullable Class<?> clazz;
+        private volatile List<Method> tests;
+        private volatile @Nullable Object instance;
+        private volatile MethodHandles.@Nullable Lookup lookup;
+
+        private GeneratedClassDescriptor(UniqueId uniqueId, String displayName, Class<?> clazz, List<Method> tests, LayerBuilder builder, ExecutionMode defaultMode, @Nullable LayerBenchmark benchmark) {
+            super(uniqueId, displayName);
+            this.className = clazz.getName();
             this.clazz = clazz;
+            this.tests = tests;
+            this.builder = builder;
+            this.defaultMode = benchmark == null ? defaultMode : ExecutionMode.SAME_THREAD;
+            this.executionMode = executionMode(clazz, this.defaultMode);
+            this.benchmark = benchmark;
+        }
+
+        private Class<?> clazz() {
+            var clazz = this.clazz;
+            if (clazz == null) {
+                throw new IllegalStateException("Test class " + className + " has already been run");
+            }
+            return clazz;
+        }
+
+        private LayerBuilder builder() {
+            var builder = this.builder;
+            if (builder == null) {
+                throw new IllegalStateException("Test class " + className + " has already been run");
+            }
+            return builder;
         }
 
         @Override
@@ -106,16 +527,101 @@ public Type getType() {
 
         @Override
         public Optional<TestSource> getSource() {
-            return Optional.of(ClassSource.from(clazz));
+            return Optional.of(ClassSource.from(className));
+        }
+
+        @Override
+        public ExecutionMode getExecutionMode() {
+            return executionMode;
+        }
+
+        @Override
+        public LayerExecutionContext before(LayerExecutionContext context) {
+            try {
+                var clazz = clazz();
+                var lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+                this.instance = lookup.findConstructor(clazz, MethodType.methodType(void.class)).invoke();
+                this.lookup = lookup;
+            } catch (Throwable t) {
+                builder().fillStackTrace(t);
+                throw rethrow(t);
+            }
+            return context;
+        }
+
+        @Override
+        public LayerExecutionContext execute(LayerExecutionContext context, DynamicTestExecutor dynamicTestExecutor) throws Exception {
+            var threads = context.engineContext().configuration().testThreads();
+            var started = new ArrayList<Thread>();
+            for (var test : tests) {
+                String methodId = String.format("%s(%s)", test.getName(),
+                    nullSafeToString(test.getParameterTypes()));
+                var methodDescriptor = new TestMethodDescriptor(
+                    getUniqueId().append("method", methodId),
+                    methodId,
+                    test,
+                    this,
+                    defaultMode
+                );
+                addChild(methodDescriptor);
+                if (threads == TestThreads.ENGINE || benchmark != null || isSameThread(test)) {
+                    dynamicTestExecutor.execute(methodDescriptor);
+                } else {
+                    started.add(methodDescriptor.start(context));
+                }
+            }
+            boolean interrupted = false;
+            for (var thread : started) {
+                while (true) {
+                    try {
+                        thread.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            dynamicTestExecutor.awaitFinished();
+            return context;
+        }
+
+        @Override
+        public void after(LayerExecutionContext context) {
+            clazz = null;
+            builder = null;
+            tests = List.of();
+            instance = null;
+            lookup = null;
+            for (var child : getChildren()) {
+                ((TestMethodDescriptor) child).method = null;
+            }
+        }
+
+        private boolean isSameThread(Method test) {
+            return AnnotationSupport.findAnnotation(test, Execution.class)
+                .or(() -> AnnotationSupport.findAnnotation(clazz(), Execution.class))
+                .map(execution -> execution.value() == org.junit.jupiter.api.parallel.ExecutionMode.SAME_THREAD)
+                .orElse(false);
         }
     }
 
-    private static final class TestMethodDescriptor extends AbstractTestDescriptor {
-        private final Method method;
+    private static final class TestMethodDescriptor extends AbstractTestDescriptor implements Node<LayerExecutionContext> {
+        private final String methodName;
+        private final String parameterTypes;
+        private final GeneratedClassDescriptor parent;
+        private final ExecutionMode executionMode;
+        private volatile @Nullable Method method;
 
-        private TestMethodDescriptor(UniqueId uniqueId, String displayName, Method method) {
+        private TestMethodDescriptor(UniqueId uniqueId, String displayName, Method method, GeneratedClassDescriptor parent, ExecutionMode defaultMode) {
             super(uniqueId, displayName);
+            this.methodName = method.getName();
+            this.parameterTypes = nullSafeToString(method.getParameterTypes());
             this.method = method;
+            this.parent = parent;
+            this.executionMode = executionMode(method, defaultMode);
         }
 
         @Override
@@ -125,174 +631,382 @@ public Type getType() {
 
         @Override
         public Optional<TestSource> getSource() {
-            return Optional.of(MethodSource.from(method.getDeclaringClass(), method));
+            return Optional.of(MethodSource.from(parent.className, methodName, parameterTypes));
+        }
+
+        @Override
+        public ExecutionMode getExecutionMode() {
+            return executionMode;
+        }
+
+        @Override
+        public LayerExecutionContext execute(LayerExecutionContext context, DynamicTestExecutor dynamicTestExecutor) {
+            try {
+                invoke(context);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+            return context;
+        }
+
+        private Thread start(LayerExecutionContext context) {
+            var listener = context.listener();
+            listener.dynamicTestRegistered(this);
+            return context.engineContext().startTest(parent.className + "#" + methodName, () -> {
+                listener.executionStarted(this);
+                var collector = new OpenTest4JAwareThrowableCollector();
+                collector.execute(() -> invoke(context));
+                listener.executionFinished(this, collector.toTestExecutionResult());
+            });
+        }
+
+        private void invoke(LayerExecutionContext context) throws Throwable {
+            var event = new LayerEvents.Execute();
+            event.begin();
+            try {
+                var lookup = parent.lookup;
+                var method = this.method;
+                if (lookup == null || method == null) {
+                    throw new IllegalStateException("Test class " + parent.className + " was not set up");
+                }
+                var handle = lookup.unreflect(method);
+                var benchmark = parent.benchmark;
+                var budget = parent.builder().budget(parent.className, methodName);
+                if (benchmark != null) {
+                    if (budget != null && budget.allocatedBytes() != null && threadAllocatedBytes() == -1) {
+                        throw new IllegalStateException("Allocation budgets require per-thread allocation counting, which this runtime does not support");
+                    }
+                    var result = LayerBenchmarks.run(handle.bindTo(parent.instance), benchmark, ModuleLayerEngine::threadAllocatedBytes);
+                    context.listener().reportingEntryPublished(this, ReportEntry.from(result.reportEntries()));
+                    if (budget != null) {
+                        checkWithin(budget, result);
+                    }
+                } else if (budget == null) {
+                    handle.invoke(parent.instance);
+                } else {
+                    invokeWithin(budget, handle, this, context);
+                }
+            } catch (Throwable t) {
+                parent.builder().fillStackTrace(t);
+                throw t;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    parent.builder().describe(event);
+                    event.generatedClass = parent.className;
+                    event.generatedTest = methodName;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    private static void invokeWithin(LayerBuilder.TestBudget budget, MethodHandle handle, TestMethodDescriptor descriptor, LayerExecutionContext context) throws Throwable {
+        var allocationBudget = budget.allocatedBytes();
+        if (allocationBudget != null && threadAllocatedBytes() == -1) {
+            throw new IllegalStateException("Allocation budgets require per-thread allocation counting, which this runtime does not support");
+        }
+        Throwable failure = null;
+        var allocatedBefore = threadAllocatedBytes();
+        var started = System.nanoTime();
+        try {
+            handle.invoke(descriptor.parent.instance);
+        } catch (Throwable t) {
+            failure = t;
+        }
+        var elapsed = System.nanoTime() - started;
+        var allocated = threadAllocatedBytes() - allocatedBefore;
+        var entries = new LinkedHashMap<String, String>();
+        entries.put("testingutils.test.time-nanos", Long.toString(elapsed));
+        if (allocatedBefore != -1) {
+            entries.put("testingutils.test.allocated-bytes", Long.toString(allocated));
+        }
+        var timeBudget = budget.time();
+        if (timeBudget != null) {
+            entries.put("testingutils.test.time-budget-nanos", Long.toString(timeBudget.toNanos()));
+        }
+        if (allocationBudget != null) {
+            entries.put("testingutils.test.allocation-budget-bytes", Long.toString(allocationBudget));
+        }
+        context.listener().reportingEntryPublished(descriptor, ReportEntry.from(entries));
+        if (failure != null) {
+            throw failure;
+        }
+        if (timeBudget != null && elapsed > timeBudget.toNanos()) {
+            throw new AssertionFailedError("Test took " + Duration.ofNanos(elapsed).toMillis() + "ms, over its budget of " + timeBudget.toMillis() + "ms", timeBudget, Duration.ofNanos(elapsed));
+        }
+        if (allocationBudget != null && allocated > allocationBudget) {
+            throw new AssertionFailedError("Test allocated " + allocated + " bytes, over its budget of " + allocationBudget + " bytes", allocationBudget, allocated);
         }
     }
 
+    // Allocation is averaged, as one iteration may pay for allocations that later ones reuse
+    private static void checkWithin(LayerBuilder.TestBudget budget, LayerBenchmarks.Result result) {
+        var timeBudget = budget.time();
+        if (timeBudget != null && result.maxNanos() > timeBudget.toNanos()) {
+            throw new AssertionFailedError("Slowest benchmark iteration took " + result.maxNanos() + "ns, over its budget of " + timeBudget.toNanos() + "ns", timeBudget, Duration.ofNanos(result.maxNanos()));
+        }
+        var allocationBudget = budget.allocatedBytes();
+        if (allocationBudget != null && result.allocatedBytesPerOp() > allocationBudget) {
+            throw new AssertionFailedError("Benchmark allocated " + result.allocatedBytesPerOp() + " bytes per iteration, over its budget of " + allocationBudget + " bytes", allocationBudget, result.allocatedBytesPerOp());
+        }
+    }
+
+    private static long threadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private record Discovery(TestDescriptor engineDescriptor, Node.ExecutionMode defaultMode, Node.ExecutionMode classesMode, boolean useIndex) {}
+
     @Override
     public TestDescriptor discover(EngineDiscoveryRequest discoveryRequest, UniqueId uniqueId) {
-        var descriptor = new EngineDescriptor(uniqueId, "Module Layer Tests");
+        var descriptor = new LayerEngineDescriptor(uniqueId, "Module Layer Tests");
+        var parameters = new PrefixedConfigurationParameters(discoveryRequest.getConfigurationParameters(), EngineConfiguration.PARALLEL_PREFIX);
+        var defaultMode = executionMode(parameters, EngineConfiguration.MODE_DEFAULT, Node.ExecutionMode.SAME_THREAD);
+        var classesMode = executionMode(parameters, EngineConfiguration.MODE_CLASSES_DEFAULT, defaultMode);
+        var useIndex = discoveryRequest.getConfigurationParameters().getBoolean(EngineConfiguration.DISCOVERY_INDEX).orElse(true);
+        var discovery = new Discovery(descriptor, defaultMode, classesMode, useIndex);
 
         discoveryRequest.getSelectorsByType(ClasspathRootSelector.class).forEach(selector -> {
-            appendTestsInClasspathRoot(selector.getClasspathRoot(), descriptor);
+            appendTestsInClasspathRoot(selector.getClasspathRoot(), discovery);
         });
 
         discoveryRequest.getSelectorsByType(PackageSelector.class).forEach(selector -> {
-            appendTestsInPackage(selector.getPackageName(), descriptor);
+            appendTestsInPackage(selector.getPackageName(), discovery);
         });
 
         discoveryRequest.getSelectorsByType(ClassSelector.class).forEach(selector -> {
-            appendTestsInClass(selector.getJavaClass(), descriptor);
+            appendTestsInClass(selector.getJavaClass(), discovery);
         });
 
         discoveryRequest.getSelectorsByType(ModuleSelector.class).forEach(selector -> {
-            appendTestsInModule(selector.getModuleName(), descriptor);
+            appendTestsInModule(selector.getModuleName(), discovery);
         });
 
         return descriptor;
     }
 
 
-    private void appendTestsInClasspathRoot(URI uri, TestDescriptor engineDescriptor) {
-        ReflectionSupport.findAllClassesInClasspathRoot(uri, c -> true, name -> true)
-            .forEach(aClass -> appendTestsInClass(aClass, engineDescriptor));
+    private static ClassLoader defaultClassLoader() {
+        var contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return contextClassLoader == null ? ClassLoader.getSystemClassLoader() : contextClassLoader;
+    }
+
+    private static boolean inPackage(String className, String packageName) {
+        return packageName.isEmpty() || className.startsWith(packageName + ".");
+    }
+
+    private static @Nullable LayerTestIndex readIndex(URI root) {
+        var location = moduleLocation(root);
+        if (!"file".equals(location.getScheme())) {
+            return null;
+        }
+        try {
+            return LayerTestIndex.read(Paths.get(location));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    private static LayerTestClassFilter classFilter(@Nullable Path root) {
+        return new LayerTestClassFilter(path -> {
+            if (root != null) {
+                var file = root.resolve(path);
+                if (Files.isRegularFile(file)) {
+                    return Files.newInputStream(file);
+                }
+            }
+            return defaultClassLoader().getResourceAsStream(path);
+        });
+    }
 
-    private void appendTestsInModule(String moduleName, TestDescriptor engineDescriptor) {
-        ReflectionSupport.findAllClassesInModule(moduleName, c -> true, name -> true)
-            .forEach(aClass -> appendTestsInClass(aClass, engineDescriptor));
+    private void appendTestsInClasspathRoot(URI uri, Discovery discovery) {
+        var root = "file".equals(uri.getScheme()) ? Paths.get(uri) : null;
+        var index = discovery.useIndex() ? readIndex(root != null ? root.toUri() : uri) : null;
+        var classFilter = classFilter(root);
+        Predicate<String> filter = classFilter;
+        if (index != null) {
+            appendIndexedTests(index, name -> true, defaultClassLoader(), discovery);
+            filter = unindexed(index, classFilter);
+        }
+        ReflectionSupport.findAllClassesInClasspathRoot(uri, c -> true, filter)
+            .forEach(aClass -> appendTestsInClass(aClass, discovery));
     }
 
-    private void appendTestsInPackage(String packageName, TestDescriptor engineDescriptor) {
-        ReflectionSupport.findAllClassesInPackage(packageName, c -> true, name -> true)
-            .forEach(aClass -> appendTestsInClass(aClass, engineDescriptor));
+    private void appendTestsInModule(String moduleName, Discovery discovery) {
+        var module = ModuleLayer.boot().findModule(moduleName);
+        if (module.isPresent()) {
+            appendTestsInModule(module.get(), name -> true, discovery);
+            return;
+        }
+        ReflectionSupport.findAllClassesInModule(moduleName, c -> true, classFilter(null))
+            .forEach(aClass -> appendTestsInClass(aClass, discovery));
     }
 
-    private void appendTestsInClass(Class<?> clazz, TestDescriptor descriptor) {
-        var classUniqueId = descriptor.getUniqueId().append("class", clazz.getName());
-        var descriptors = new ArrayList<TestDescriptor>();
+    private void appendTestsInModule(Module module, Predicate<String> classNameFilter, Discovery discovery) {
+        @Nullable LayerTestIndex index = null;
+        var resolved = module.getLayer() == null ? Optional.<ResolvedModule>empty() : module.getLayer().configuration().findModule(module.getName());
+        if (discovery.useIndex() && resolved.isPresent()) {
+            try {
+                index = LayerTestIndex.read(resolved.get().reference());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        var classFilter = new LayerTestClassFilter(path -> {
+            var stream = module.getResourceAsStream(path);
+            return stream != null ? stream : defaultClassLoader().getResourceAsStream(path);
+        });
+        Predicate<String> filter = classFilter;
+        if (index != null) {
+            appendIndexedTests(index, classNameFilter, module.getClassLoader(), discovery);
+            filter = unindexed(index, classFilter);
+        }
+        var moduleFilter = filter;
+        ReflectionSupport.findAllClassesInModule(module.getName(), c -> true, name -> classNameFilter.test(name) && moduleFilter.test(name))
+            .forEach(aClass -> appendTestsInClass(aClass, discovery));
+    }
+
+    private void appendTestsInPackage(String packageName, Discovery discovery) {
+        Predicate<String> inPackage = name -> inPackage(name, packageName);
+        var found = false;
+        var locations = new HashSet<URI>();
+        for (var module : ModuleLayer.boot().modules()) {
+            if (module.getPackages().stream().noneMatch(name -> name.equals(packageName) || inPackage(name, packageName))) {
+                continue;
+            }
+            found = true;
+            module.getLayer().configuration().findModule(module.getName())
+                .flatMap(resolved -> resolved.reference().location())
+                .ifPresent(location -> locations.add(location.normalize()));
+            appendTestsInModule(module, inPackage, discovery);
+        }
+        if (!packageName.isEmpty()) {
+            try {
+                var resources = defaultClassLoader().getResources(packageName.replace('.', '/'));
+                while (resources.hasMoreElements()) {
+                    var url = resources.nextElement().toString();
+                    var packagePath = url.lastIndexOf(packageName.replace('.', '/'));
+                    var root = URI.create(url.substring(0, packagePath));
+                    if (locations.contains(moduleLocation(root))) {
+                        continue;
+                    }
+                    found = true;
+                    var index = discovery.useIndex() ? readIndex(root) : null;
+                    var classFilter = classFilter("file".equals(root.getScheme()) ? Paths.get(root) : null);
+                    Predicate<String> filter = classFilter;
+                    if (index != null) {
+                        appendIndexedTests(index, inPackage, defaultClassLoader(), discovery);
+                        filter = unindexed(index, classFilter);
+                    }
+                    var rootFilter = filter;
+                    ReflectionSupport.findAllClassesInClasspathRoot(root, c -> true, name -> inPackage.test(name) && rootFilter.test(name))
+                        .forEach(aClass -> appendTestsInClass(aClass, discovery));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!found) {
+            ReflectionSupport.findAllClassesInPackage(packageName, c -> true, classFilter(null))
+                .forEach(aClass -> appendTestsInClass(aClass, discovery));
+        }
+    }
+
+    private static URI moduleLocation(URI root) {
+        var string = root.toString();
+        if (string.startsWith("jar:") && string.endsWith("!/")) {
+            return URI.create(string.substring("jar:".length(), string.length() - "!/".length())).normalize();
+        }
+        return "file".equals(root.getScheme()) ? Paths.get(root).toUri().normalize() : root.normalize();
+    }
+
+    // A class only inheriting its layer methods is not indexed when compiled without the class declaring them
+    private static Predicate<String> unindexed(LayerTestIndex index, LayerTestClassFilter filter) {
+        var indexed = Set.copyOf(index.classes());
+        indexed.forEach(filter::assumeCandidate);
+        return name -> !indexed.contains(name) && filter.test(name);
+    }
+
+    private void appendIndexedTests(LayerTestIndex index, Predicate<String> classNameFilter, @Nullable ClassLoader classLoader, Discovery discovery) {
+        var loader = classLoader == null ? defaultClassLoader() : classLoader;
+        for (var name : index.classes()) {
+            if (!classNameFilter.test(name)) {
+                continue;
+            }
+            try {
+                appendTestsInClass(Class.forName(name, false, loader), discovery);
+            } catch (ClassNotFoundException e) {
+                // Left behind in the index by incremental compilation after the class was removed
+            }
+        }
+    }
+
+    private void appendTestsInClass(Class<?> clazz, Discovery discovery) {
         var sharedOptions = AnnotationSupport.findRepeatableAnnotations(clazz, LayerConfiguration.class);
+        var methods = new LinkedHashMap<Method, LayerConfigurationOptions>();
         AnnotationSupport.findAnnotatedMethods(clazz, LayerTest.class, HierarchyTraversalMode.TOP_DOWN)
             .forEach(method -> {
-                String methodId = String.format("%s(%s)", method.getName(),
-                    nullSafeToString(method.getParameterTypes()));
-                var methodUniqueId = classUniqueId.append("method", methodId);
                 var optionsList = new ArrayList<>(sharedOptions);
                 optionsList.addAll(AnnotationSupport.findRepeatableAnnotations(method, LayerConfiguration.class));
-                var options = new LayerConfigurationOptions(optionsList);
-                descriptors.add(new LayerMethodDescriptor(
-                    methodUniqueId,
-                    methodId,
-                    method,
-                    options
-                ));
+                methods.put(method, new LayerConfigurationOptions(optionsList));
             });
+        appendLayerMethods(clazz, methods, discovery);
+    }
+
+    private void appendLayerMethods(Class<?> clazz, Map<Method, LayerConfigurationOptions> methods, Discovery discovery) {
+        var descriptor = discovery.engineDescriptor();
+        var classUniqueId = descriptor.getUniqueId().append("class", clazz.getName());
+        var descriptors = new ArrayList<TestDescriptor>();
+        methods.forEach((method, options) -> {
+            String methodId = String.format("%s(%s)", method.getName(),
+                nullSafeToString(method.getParameterTypes()));
+            var methodUniqueId = classUniqueId.append("method", methodId);
+            descriptors.add(new LayerMethodDescriptor(
+                methodUniqueId,
+                methodId,
+                clazz,
+                method,
+                options,
+                discovery.defaultMode()
+            ));
+        });
         if (!descriptors.isEmpty()) {
-            var classDescriptor = new ClassTestDescriptor(classUniqueId, clazz.getSimpleName(), clazz);
+            var classDescriptor = new ClassTestDescriptor(classUniqueId, clazz.getSimpleName(), clazz, discovery.classesMode());
             descriptor.addChild(classDescriptor);
             descriptors.forEach(classDescriptor::addChild);
         }
     }
 
-    @Override
-    public void execute(ExecutionRequest request) {
-        var root = (EngineDescriptor) request.getRootTestDescriptor();
-        var listener = request.getEngineExecutionListener();
-        var executor = new DelegateExecutor(listener);
-        listener.executionStarted(root);
-        for (var child : root.getChildren()) {
-            executor.execute((ClassTestDescriptor) child);
+    private final class HierarchicalExecution extends HierarchicalTestEngine<LayerExecutionContext> {
+        @Override
+        public String getId() {
+            return ModuleLayerEngine.this.getId();
         }
-        listener.executionFinished(root, TestExecutionResult.successful());
-    }
-
-    private static final class DelegateExecutor {
-        private final EngineExecutionListener listener;
-        private final Path workingDirectory = Paths.get("module-layer-framework");
 
-        public DelegateExecutor(EngineExecutionListener listener) {
-            this.listener = listener;
+        @Override
+        public TestDescriptor discover(EngineDiscoveryRequest discoveryRequest, UniqueId uniqueId) {
+            return ModuleLayerEngine.this.discover(discoveryRequest, uniqueId);
         }
 
-        public void execute(ClassTestDescriptor classTestDescriptor) {
-            listener.executionStarted(classTestDescriptor);
-            Object instance;
-
-            try {
-                instance = ReflectionSupport.newInstance(classTestDescriptor.clazz);
-            } catch (Throwable t) {
-                listener.executionFinished(classTestDescriptor, TestExecutionResult.failed(t));
-                return;
+        @Override
+        protected HierarchicalTestExecutorService createExecutorService(ExecutionRequest request) {
+            var parameters = new PrefixedConfigurationParameters(request.getConfigurationParameters(), EngineConfiguration.PARALLEL_PREFIX);
+            if (parameters.getBoolean(EngineConfiguration.PARALLEL_ENABLED).orElse(false)) {
+                return new ForkJoinPoolHierarchicalTestExecutorService(parameters);
             }
-            for (var childDescriptor : classTestDescriptor.getChildren()) {
-                var layerMethodDescriptor = (LayerMethodDescriptor) childDescriptor;
+            return super.createExecutorService(request);
+        }
 
-                listener.executionStarted(childDescriptor);
-                Throwable throwable = null;
-                try {
-                    layerMethodDescriptor.method.trySetAccessible();
-                    var layerBuilder = (LayerBuilder) layerMethodDescriptor.method.invoke(instance);
-                    var path = workingDirectory.resolve(classTestDescriptor.clazz.getName()).resolve(layerMethodDescriptor.method.getName());
-                    try (var info = layerBuilder.build(path, layerMethodDescriptor.options)) {
-                        for (var clazz : info.classes()) {
-                            var annotated = AnnotationSupport.findAnnotatedMethods(clazz, Test.class, HierarchyTraversalMode.TOP_DOWN);
-                            if (annotated.isEmpty()) {
-                                continue;
-                            }
-                            var classDescriptor = new GeneratedClassDescriptor(
-                                childDescriptor.getUniqueId().append("class", clazz.getName()),
-                                clazz.getSimpleName(),
-                                clazz
-                            );
-                            childDescriptor.addChild(classDescriptor);
-                            listener.dynamicTestRegistered(classDescriptor);
-                            var tests = new ArrayList<TestMethodDescriptor>();
-                            for (var method : annotated) {
-                                String methodId = String.format("%s(%s)", method.getName(),
-                                    nullSafeToString(method.getParameterTypes()));
-                                var methodDescriptor = new TestMethodDescriptor(
-                                    classDescriptor.getUniqueId().append("method", methodId),
-                                    methodId,
-                                    method
-                                );
-                                classDescriptor.addChild(methodDescriptor);
-                                tests.add(methodDescriptor);
-                                listener.dynamicTestRegistered(methodDescriptor);
-                            }
-                            listener.executionStarted(classDescriptor);
-                            try {
-                                var lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
-                                Object innerInstance = lookup.findConstructor(clazz, MethodType.methodType(void.class)).invoke();
-                                for (var test : tests) {
-                                    listener.executionStarted(test);
-                                    try {
-                                        lookup.unreflect(test.method).invoke(innerInstance);
-                                    } catch (Throwable t) {
-                                        info.builder().fillStackTrace(t);
-                                        listener.executionFinished(test, TestExecutionResult.failed(t));
-                                        continue;
-                                    }
-                                    listener.executionFinished(test, TestExecutionResult.successful());
-                                }
-                            } catch (Throwable t) {
-                                info.builder().fillStackTrace(t);
-                                listener.executionFinished(classDescriptor, TestExecutionResult.failed(t));
-                                continue;
-                            }
-                            listener.executionFinished(classDescriptor, TestExecutionResult.successful());
-                        }
-                    }
-                } catch (Throwable t) {
-                    throwable = t;
-                }
-                if (throwable != null) {
-                    listener.executionFinished(childDescriptor, TestExecutionResult.failed(throwable));
-                } else {
-                    listener.executionFinished(childDescriptor, TestExecutionResult.successful());
-                }
-            }
-            listener.executionFinished(classTestDescriptor, TestExecutionResult.successful());
+        @Override
+        protected LayerExecutionContext createExecutionContext(ExecutionRequest request) {
+            return new LayerExecutionContext(request.getEngineExecutionListener(), request.getConfigurationParameters());
         }
     }
 
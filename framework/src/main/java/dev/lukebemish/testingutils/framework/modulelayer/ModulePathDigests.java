@@ -0,0 +1,61 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import java.io.IOException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+final class ModulePathDigests {
+    private final Map<List<Path>, Map<String, ModuleReference>> modulePaths = new ConcurrentHashMap<>();
+    private final Map<URI, String> digests = new ConcurrentHashMap<>();
+
+    String key(List<Path> modulePath, Collection<String> roots) throws IOException {
+        var modules = modulePaths.computeIfAbsent(List.copyOf(modulePath), paths -> ModuleFinder.of(paths.toArray(Path[]::new)).findAll().stream()
+            .collect(Collectors.toMap(reference -> reference.descriptor().name(), reference -> reference)));
+        var resolved = new TreeSet<String>();
+        var pending = new ArrayDeque<>(roots);
+        var automatic = false;
+        while (!pending.isEmpty()) {
+            var reference = modules.get(pending.poll());
+            if (reference == null || !resolved.add(reference.descriptor().name())) {
+                continue;
+            }
+            reference.descriptor().requires().forEach(requires -> pending.add(requires.name()));
+            if (reference.descriptor().isAutomatic() && !automatic) {
+                automatic = true;
+                modules.values().stream()
+                    .filter(other -> other.descriptor().isAutomatic())
+                    .forEach(other -> pending.add(other.descriptor().name()));
+            }
+        }
+        var fingerprint = new Fingerprint();
+        fingerprint.add(resolved.size());
+        for (var name : resolved) {
+            fingerprint.add(name).add(digest(modules.get(name)));
+        }
+        return fingerprint.hash();
+    }
+
+    private String digest(ModuleReference reference) throws IOException {
+        var location = reference.location().filter(uri -> "file".equals(uri.getScheme()));
+        if (location.isEmpty()) {
+            return reference.descriptor().toNameAndVersion();
+        }
+        var existing = digests.get(location.get());
+        if (existing != null) {
+            return existing;
+        }
+        var digest = new Fingerprint().add(Paths.get(location.get())).hash();
+        digests.put(location.get(), digest);
+        return digest;
+    }
+}
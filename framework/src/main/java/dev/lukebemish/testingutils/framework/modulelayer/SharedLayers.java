@@ -0,0 +1,121 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+final class SharedLayers {
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    interface LayerFactory {
+        LayerBuilder.LayerInfo build() throws IOException;
+    }
+
+    private static final class Entry {
+        private int references;
+        private @Nullable CompletableFuture<List<MemoryModule>> compilation;
+        private LayerBuilder.@Nullable LayerInfo info;
+        private @Nullable Exception failure;
+    }
+
+    final class Lease implements AutoCloseable {
+        private final String key;
+        private final LayerBuilder.LayerInfo info;
+        private boolean closed;
+
+        private Lease(String key, LayerBuilder.LayerInfo info) {
+            this.key = key;
+            this.info = info;
+        }
+
+        LayerBuilder.LayerInfo info() {
+            return info;
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(key);
+        }
+    }
+
+    synchronized void retain(String key) {
+        entries.computeIfAbsent(key, k -> new Entry()).references++;
+    }
+
+    void release(String key) throws IOException {
+        LayerBuilder.LayerInfo toClose = null;
+        synchronized (this) {
+            var entry = entries.get(key);
+            if (entry == null) {
+                throw new IllegalStateException("Layer " + key + " was released more times than it was retained");
+            }
+            if (--entry.references == 0) {
+                entries.remove(key);
+                toClose = entry.info;
+            }
+        }
+        if (toClose != null) {
+            toClose.close();
+        }
+    }
+
+    synchronized CompletableFuture<List<MemoryModule>> compilation(String key, CompletableFuture<List<MemoryModule>> claimed) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return claimed;
+        }
+        if (entry.compilation == null) {
+            entry.compilation = claimed;
+        }
+        return entry.compilation;
+    }
+
+    Lease acquire(String key, LayerFactory factory) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.computeIfAbsent(key, k -> new Entry());
+            entry.references++;
+        }
+        try {
+            synchronized (entry) {
+                // Each caller gets its own exception, as callers may add suppressed exceptions to it
+                if (entry.failure != null) {
+                    throw new IOException("Parent layer failed to build", entry.failure);
+                }
+                if (entry.info == null) {
+                    try {
+                        entry.info = factory.build();
+                    } catch (Exception e) {
+                        entry.failure = e;
+                        throw new IOException("Parent layer failed to build", e);
+                    }
+                }
+                return new Lease(key, entry.info);
+            }
+        } catch (Throwable t) {
+            try {
+                release(key);
+            } catch (IOException | RuntimeException e) {
+                t.addSuppressed(e);
+            }
+            if (t instanceof IOException ioException) {
+                throw ioException;
+            } else if (t instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (t instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(t);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+enum TestThreads {
+    ENGINE,
+    VIRTUAL,
+    PLATFORM;
+
+    private static final @Nullable MethodHandle START_VIRTUAL = findStartVirtual();
+
+    // Virtual threads are looked up reflectively, as the framework still targets Java 17
+    private static @Nullable MethodHandle findStartVirtual() {
+        try {
+            var lookup = MethodHandles.publicLookup();
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            var ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")))
+                .asType(MethodType.methodType(builderClass));
+            var name = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class));
+            var start = lookup.findVirtual(builderClass, "start", MethodType.methodType(Thread.class, Runnable.class));
+            var named = MethodHandles.collectArguments(name, 0, ofVirtual);
+            return MethodHandles.collectArguments(start, 0, named);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static TestThreads from(String value) {
+        var threads = switch (value) {
+            case "engine" -> ENGINE;
+            case "virtual" -> VIRTUAL;
+            case "platform" -> PLATFORM;
+            default -> throw new IllegalArgumentException("Unknown value for " + EngineConfiguration.TEST_THREADS + ": " + value + ", expected 'engine', 'virtual' or 'platform'");
+        };
+        if (threads == VIRTUAL && START_VIRTUAL == null) {
+            throw new IllegalArgumentException("Virtual threads are not available in this runtime; " + EngineConfiguration.TEST_THREADS + "=virtual requires Java 21 or newer");
+        }
+        return threads;
+    }
+
+    Thread start(String name, Runnable task) {
+        return switch (this) {
+            case ENGINE -> throw new IllegalStateException("Tests run on the engine thread are not started separately");
+            case VIRTUAL -> {
+                var startVirtual = START_VIRTUAL;
+                if (startVirtual == null) {
+                    throw new IllegalStateException("Virtual threads are not available in this runtime");
+                }
+                try {
+                    yield (Thread) startVirtual.invokeExact(name, task);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            }
+            case PLATFORM -> {
+                var thread = new Thread(task, name);
+                thread.setDaemon(true);
+                thread.start();
+                yield thread;
+            }
+        };
+    }
+}
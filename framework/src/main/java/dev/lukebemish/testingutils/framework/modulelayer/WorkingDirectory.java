@@ -0,0 +1,144 @@
+package dev.lukebemish.testingutils.framework.modulelayer;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+final class WorkingDirectory implements AutoCloseable {
+    private static final String RUN_PREFIX = "run-";
+    private static final String LOCK_EXTENSION = ".lock";
+    // A lock file is created before it is locked, so very new ones may belong to a run that is still starting
+    private static final Duration STALE_AFTER = Duration.ofMinutes(1);
+
+    private final Path lockFile;
+    private final Path directory;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private WorkingDirectory(Path lockFile, Path directory, FileChannel channel, FileLock lock) {
+        this.lockFile = lockFile;
+        this.directory = directory;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    Path path() {
+        return directory;
+    }
+
+    static WorkingDirectory create(Path root) throws IOException {
+        Files.createDirectories(root);
+        var lockFile = Files.createTempFile(root, RUN_PREFIX, LOCK_EXTENSION);
+        var channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+        try {
+            var lock = channel.lock();
+            var name = lockFile.getFileName().toString();
+            var directory = Files.createDirectory(root.resolve(name.substring(0, name.length() - LOCK_EXTENSION.length())));
+            var workingDirectory = new WorkingDirectory(lockFile, directory, channel, lock);
+            workingDirectory.cleanStale(root);
+            return workingDirectory;
+        } catch (Throwable t) {
+            try {
+                channel.close();
+                Files.deleteIfExists(lockFile);
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+    }
+
+    private void cleanStale(Path root) {
+        var candidates = new ArrayList<Path>();
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(path -> path.getFileName().toString().startsWith(RUN_PREFIX)).forEach(candidates::add);
+        } catch (IOException ignored) {
+            return;
+        }
+        var staleBefore = FileTime.fromMillis(System.currentTimeMillis() - STALE_AFTER.toMillis());
+        for (var path : candidates) {
+            var name = path.getFileName().toString();
+            if (path.equals(lockFile) || path.equals(directory)) {
+                continue;
+            }
+            try {
+                if (name.endsWith(LOCK_EXTENSION)) {
+                    if (Files.getLastModifiedTime(path).compareTo(staleBefore) < 0 && isAbandoned(path)) {
+                        delete(root.resolve(name.substring(0, name.length() - LOCK_EXTENSION.length())));
+                        Files.deleteIfExists(path);
+                    }
+                } else if (!Files.exists(root.resolve(name + LOCK_EXTENSION)) && Files.getLastModifiedTime(path).compareTo(staleBefore) < 0) {
+                    delete(path);
+                }
+            } catch (IOException ignored) {
+                // Most likely removed concurrently by another run cleaning up
+            }
+        }
+    }
+
+    private static boolean isAbandoned(Path lockFile) throws IOException {
+        try (var channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            var lock = channel.tryLock();
+            if (lock == null) {
+                return false;
+            }
+            lock.release();
+            return true;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, @Nullable IOException exception) throws IOException {
+                if (exception == null) {
+                    Files.delete(directory);
+                    return FileVisitResult.CONTINUE;
+                } else {
+                    throw exception;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            delete(directory);
+        } finally {
+            try {
+                lock.release();
+            } finally {
+                channel.close();
+            }
+            Files.deleteIfExists(lockFile);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package dev.lukebemish.testingutils.framework.modulelayer.internal;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.module.ModuleReference;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+public record LayerTestIndex(List<String> classes) {
+    public static final String LOCATION = "META-INF/testingutils/layer-tests/";
+
+    public static String location(String className) {
+        return LOCATION + className;
+    }
+
+    public static @Nullable LayerTestIndex read(Path root) throws IOException {
+        if (Files.isDirectory(root)) {
+            return list(root.resolve(LOCATION));
+        } else if (Files.isRegularFile(root)) {
+            try (var jar = FileSystems.newFileSystem(root)) {
+                return list(jar.getPath(LOCATION));
+            }
+        }
+        return null;
+    }
+
+    private static @Nullable LayerTestIndex list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (var files = Files.list(directory)) {
+            return of(files.map(file -> file.getFileName().toString()));
+        }
+    }
+
+    public static @Nullable LayerTestIndex read(ModuleReference module) throws IOException {
+        try (var reader = module.open(); var names = reader.list()) {
+            return of(names.filter(name -> name.startsWith(LOCATION) && name.length() > LOCATION.length())
+                .map(name -> name.substring(LOCATION.length()))
+                .filter(name -> !name.contains("/")));
+        }
+    }
+
+    private static @Nullable LayerTestIndex of(Stream<String> classes) {
+        var sorted = classes.sorted().toList();
+        return sorted.isEmpty() ? null : new LayerTestIndex(sorted);
+    }
+}
@@ -0,0 +1,302 @@
+package dev.lukebemish.testingutils.framework.modulelayer.internal;
+
+import com.google.auto.service.AutoService;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import org.jspecify.annotations.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Isolating, so a class only inheriting its layer methods is indexed only when compiled along with one declaring them
+@AutoService(Processor.class)
+@SupportedAnnotationTypes(LayerTestIndexProcessor.LAYER_TEST)
+public final class LayerTestIndexProcessor extends AbstractProcessor {
+    static final String LAYER_TEST = "dev.lukebemish.testingutils.framework.modulelayer.LayerTest";
+    private static final String FRAMEWORK_PACKAGE = "dev.lukebemish.testingutils.framework.modulelayer";
+
+    private final Set<String> indexed = new HashSet<>();
+    private final Set<String> sourceTypes = new HashSet<>();
+    private final Set<CompilationUnitTree> scanned = Collections.newSetFromMap(new IdentityHashMap<>());
+    private @Nullable Trees trees;
+
+    public LayerTestIndexProcessor() {}
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.trees = trees(processingEnv);
+    }
+
+    private static @Nullable Trees trees(ProcessingEnvironment processingEnv) {
+        var environment = processingEnv;
+        for (int depth = 0; depth < 4; depth++) {
+            try {
+                return Trees.instance(environment);
+            } catch (IllegalArgumentException e) {
+                var delegate = delegate(environment);
+                if (delegate == null || delegate == environment) {
+                    return null;
+                }
+                environment = delegate;
+            }
+        }
+        return null;
+    }
+
+    private static @Nullable ProcessingEnvironment delegate(ProcessingEnvironment environment) {
+        for (Class<?> type = environment.getClass(); type != null; type = type.getSuperclass()) {
+            for (var field : type.getDeclaredFields()) {
+                if (ProcessingEnvironment.class.isAssignableFrom(field.getType()) && field.trySetAccessible()) {
+                    try {
+                        return (ProcessingEnvironment) field.get(environment);
+                    } catch (IllegalAccessException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        var layerTest = processingEnv.getElementUtils().getTypeElement(LAYER_TEST);
+        if (layerTest == null || roundEnv.processingOver()) {
+            return false;
+        }
+        for (var element : roundEnv.getRootElements()) {
+            collectSourceTypes(element);
+        }
+        // Inherited layer methods are not visible through getElementsAnnotatedWith, so every type is checked
+        for (var element : roundEnv.getRootElements()) {
+            visit(element, layerTest);
+            scanLines(element);
+        }
+        return true;
+    }
+
+    private void collectSourceTypes(Element element) {
+        if (element instanceof TypeElement type) {
+            sourceTypes.add(type.getQualifiedName().toString());
+            type.getEnclosedElements().forEach(this::collectSourceTypes);
+        }
+    }
+
+    // Trees are not attributed yet, so calls are recognized by their name and shape alone
+    private void scanLines(Element element) {
+        var trees = this.trees;
+        var path = trees == null ? null : trees.getPath(element);
+        if (trees == null || path == null || !scanned.add(path.getCompilationUnit())) {
+            return;
+        }
+        var unit = path.getCompilationUnit();
+        var packageName = unit.getPackageName() == null ? "" : unit.getPackageName().toString();
+        if (!packageName.equals(FRAMEWORK_PACKAGE) && unit.getImports().stream().noneMatch(tree -> tree.getQualifiedIdentifier().toString().startsWith(FRAMEWORK_PACKAGE + "."))) {
+            return;
+        }
+        CharSequence text;
+        try {
+            text = unit.getSourceFile().getCharContent(true);
+        } catch (IOException e) {
+            return;
+        }
+        var positions = trees.getSourcePositions();
+        var lineMap = unit.getLineMap();
+        var entries = new ArrayList<SourceLineMap.Entry>();
+        new TreeScanner<@Nullable Void, @Nullable Void>() {
+            @Override
+            public @Nullable Void visitMethodInvocation(MethodInvocationTree node, @Nullable Void unused) {
+                var select = node.getMethodSelect();
+                var name = select instanceof MemberSelectTree member ? member.getIdentifier().toString()
+                    : select instanceof IdentifierTree identifier ? identifier.getName().toString() : "";
+                var arguments = node.getArguments();
+                if ((name.equals("test") || name.equals("java")) && arguments.size() == 2
+                    && arguments.get(0) instanceof LiteralTree className && className.getValue() instanceof String
+                    && arguments.get(1) instanceof LiteralTree contents && contents.getValue() instanceof String) {
+                    var call = indexOf(text, '(', positions.getEndPosition(unit, select));
+                    var start = positions.getStartPosition(unit, contents);
+                    var end = positions.getEndPosition(unit, contents);
+                    if (call != -1 && start != -1 && end != -1) {
+                        entries.add(new SourceLineMap.Entry(
+                            (int) lineMap.getLineNumber(call),
+                            (String) className.getValue(),
+                            literalLines(text.subSequence((int) start, (int) end).toString(), (int) lineMap.getLineNumber(start))
+                        ));
+                    }
+                }
+                return super.visitMethodInvocation(node, unused);
+            }
+        }.scan(unit, null);
+        if (!entries.isEmpty()) {
+            var fileName = unit.getSourceFile().toUri().getPath();
+            fileName = fileName == null ? unit.getSourceFile().getName() : fileName;
+            fileName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+            try {
+                var resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SourceLineMap.location(packageName, fileName), element);
+                try (var writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                    new SourceLineMap(entries).write(writer);
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write source line map: " + e);
+            }
+        }
+    }
+
+    private static long indexOf(CharSequence text, char c, long from) {
+        if (from < 0) {
+            return -1;
+        }
+        for (int i = (int) from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Escaped line terminators join lines, and \n escapes split them
+    private static int[] literalLines(String literal, int line) {
+        var lines = new ArrayList<Integer>();
+        int i = 1;
+        int end = literal.length() - 1;
+        if (literal.startsWith("\"\"\"")) {
+            i = 3;
+            while (i < literal.length() && literal.charAt(i) != '\n' && literal.charAt(i) != '\r') {
+                i++;
+            }
+            i = afterTerminator(literal, i);
+            line++;
+            end = literal.length() - 3;
+        }
+        lines.add(line);
+        while (i < end) {
+            var c = literal.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                var next = literal.charAt(i + 1);
+                if (next == '\n' || next == '\r') {
+                    i = afterTerminator(literal, i + 1);
+                    line++;
+                    continue;
+                } else if (next == 'n') {
+                    lines.add(line);
+                }
+                i += 2;
+            } else if (c == '\n' || c == '\r') {
+                i = afterTerminator(literal, i);
+                line++;
+                lines.add(line);
+            } else {
+                i++;
+            }
+        }
+        return lines.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int afterTerminator(String text, int i) {
+        if (i < text.length() && text.charAt(i) == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+            return i + 2;
+        }
+        return i + 1;
+    }
+
+    private void visit(Element element, TypeElement layerTest) {
+        if (!(element instanceof TypeElement type)) {
+            return;
+        }
+        for (var enclosed : type.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.METHOD && isAnnotated(enclosed, layerTest) && !((ExecutableElement) enclosed).getParameters().isEmpty()) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@LayerTest methods may not declare parameters", enclosed);
+            }
+        }
+        var declaring = declaring(type, layerTest, new HashSet<>());
+        if (declaring != null) {
+            var name = processingEnv.getElementUtils().getBinaryName(type).toString();
+            var originating = declaring != type && sourceTypes.contains(declaring.getQualifiedName().toString()) ? declaring : type;
+            if (indexed.add(name)) {
+                try {
+                    processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", LayerTestIndex.location(name), originating).openOutputStream().close();
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write layer test index: " + e);
+                }
+            }
+        }
+        for (var enclosed : type.getEnclosedElements()) {
+            visit(enclosed, layerTest);
+        }
+    }
+
+    private @Nullable TypeElement declaring(TypeElement type, TypeElement layerTest, Set<TypeElement> visited) {
+        if (!visited.add(type) || type.getQualifiedName().contentEquals(Object.class.getName())) {
+            return null;
+        } else if (declares(type, layerTest)) {
+            return type;
+        }
+        var superclass = asType(type.getSuperclass());
+        var found = superclass == null ? null : declaring(superclass, layerTest, visited);
+        for (var implemented : type.getInterfaces()) {
+            if (found != null) {
+                break;
+            }
+            var interfaceType = asType(implemented);
+            found = interfaceType == null ? null : declaring(interfaceType, layerTest, visited);
+        }
+        return found;
+    }
+
+    private static boolean declares(TypeElement type, TypeElement layerTest) {
+        for (var enclosed : type.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.METHOD && isAnnotated(enclosed, layerTest) && ((ExecutableElement) enclosed).getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static @Nullable TypeElement asType(TypeMirror mirror) {
+        if (mirror.getKind() == TypeKind.DECLARED && ((DeclaredType) mirror).asElement() instanceof TypeElement type) {
+            return type;
+        }
+        return null;
+    }
+
+    private static boolean isAnnotated(Element element, TypeElement annotation) {
+        for (var mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+package dev.lukebemish.testingutils.framework.modulelayer.internal;
+
+import com.google.auto.service.AutoService;
+import org.jspecify.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.spi.URLStreamHandlerProvider;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@AutoService(URLStreamHandlerProvider.class)
+public final class MemoryUrlStreamHandlerProvider extends URLStreamHandlerProvider {
+    public static final String SCHEME = "testingutils-layer";
+
+    private static final Map<String, Opener> OPEN = new ConcurrentHashMap<>();
+
+    public interface Opener {
+        @Nullable InputStream open(String path) throws IOException;
+    }
+
+    public static void register(String id, Opener opener) {
+        OPEN.put(id, opener);
+    }
+
+    public static void unregister(String id) {
+        OPEN.remove(id);
+    }
+
+    private static @Nullable InputStream open(URI uri) throws IOException {
+        var path = uri.getPath();
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        var slash = path.indexOf('/', 1);
+        if (slash == -1) {
+            return null;
+        }
+        var opener = OPEN.get(path.substring(1, slash));
+        if (opener == null) {
+            return null;
+        }
+        return opener.open(path.substring(slash + 1));
+    }
+
+    @Override
+    public @Nullable URLStreamHandler createURLStreamHandler(String protocol) {
+        if (!SCHEME.equals(protocol)) {
+            return null;
+        }
+        return new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL url) {
+                return new URLConnection(url) {
+                    @Override
+                    public void connect() {
+                        connected = true;
+                    }
+
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        InputStream stream;
+                        try {
+                            stream = open(url.toURI());
+                        } catch (URISyntaxException e) {
+                            throw new IOException(e);
+                        }
+                        if (stream == null) {
+                            throw new FileNotFoundException(url.toString());
+                        }
+                        connect();
+                        return stream;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package dev.lukebemish.testingutils.framework.modulelayer.internal;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// "1:28+5,6:34+2" maps generated lines 1-5 to user lines 28-32, and 6-7 to 34-35
+public record SourceLineMap(List<Entry> entries) {
+    public static final String LOCATION = "META-INF/testingutils/lines/";
+
+    private static final String HEADER = "# testingutils source line map 1";
+
+    private static final ClassValue<SourceLineMap> FOR_CLASS = new ClassValue<>() {
+        @Override
+        protected SourceLineMap computeValue(Class<?> type) {
+            var location = location(type.getPackageName(), fileName(type));
+            try (var stream = type.getModule().getResourceAsStream(location)) {
+                return stream == null ? new SourceLineMap(List.of()) : read(stream);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read source line map at " + location, e);
+            }
+        }
+    };
+
+    public record Entry(int callLine, String className, int[] lines) {}
+
+    public static String location(String packageName, String fileName) {
+        return LOCATION + (packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/") + fileName;
+    }
+
+    public static SourceLineMap forClass(Class<?> type) {
+        return FOR_CLASS.get(type);
+    }
+
+    private static String fileName(Class<?> type) {
+        var outermost = type;
+        while (outermost.getEnclosingClass() != null) {
+            outermost = outermost.getEnclosingClass();
+        }
+        return outermost.getSimpleName() + ".java";
+    }
+
+    public int @Nullable [] lines(int callLine, String className) {
+        for (var entry : entries) {
+            if (entry.callLine() == callLine && entry.className().equals(className)) {
+                return entry.lines();
+            }
+        }
+        return null;
+    }
+
+    public void write(Writer writer) throws IOException {
+        writer.write(HEADER + "\n");
+        for (var entry : entries) {
+            writer.write(entry.callLine() + "\t" + entry.className() + "\t" + encode(entry.lines()) + "\n");
+        }
+    }
+
+    public static SourceLineMap read(InputStream stream) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        var header = reader.readLine();
+        if (!HEADER.equals(header)) {
+            throw new IOException("Unsupported source line map; expected '" + HEADER + "' but found '" + header + "'");
+        }
+        var entries = new ArrayList<Entry>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            var parts = line.split("\t", -1);
+            if (parts.length != 3) {
+                throw new IOException("Malformed entry in source line map: " + line);
+            }
+            try {
+                entries.add(new Entry(Integer.parseInt(parts[0]), parts[1], decode(parts[2])));
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed entry in source line map: " + line, e);
+            }
+        }
+        return new SourceLineMap(entries);
+    }
+
+    public static String encode(int[] lines) {
+        var builder = new StringBuilder();
+        for (int start = 0; start < lines.length;) {
+            int end = start + 1;
+            while (end < lines.length && lines[end] == lines[end - 1] + 1) {
+                end++;
+            }
+            if (!builder.isEmpty()) {
+                builder.append(',');
+            }
+            builder.append(start + 1).append(':').append(lines[start]).append('+').append(end - start);
+            start = end;
+        }
+        return builder.toString();
+    }
+
+    public static int[] decode(String encoded) {
+        if (encoded.isEmpty()) {
+            return new int[0];
+        }
+        var ranges = encoded.split(",");
+        var last = ranges[ranges.length - 1];
+        var length = Integer.parseInt(last.substring(0, last.indexOf(':'))) - 1 + Integer.parseInt(last.substring(last.indexOf('+') + 1));
+        var lines = new int[length];
+        for (var range : ranges) {
+            var colon = range.indexOf(':');
+            var plus = range.indexOf('+');
+            if (colon == -1 || plus < colon) {
+                throw new IllegalArgumentException("Malformed line range: " + range);
+            }
+            var generated = Integer.parseInt(range.substring(0, colon));
+            var source = Integer.parseInt(range.substring(colon + 1, plus));
+            var count = Integer.parseInt(range.substring(plus + 1));
+            for (int i = 0; i < count; i++) {
+                lines[generated - 1 + i] = source + i;
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,4 @@
+@NullMarked
+package dev.lukebemish.testingutils.framework.modulelayer.internal;
+
+import org.jspecify.annotations.NullMarked;
@@ -6,8 +6,14 @@
     requires org.junit.platform.launcher;
     requires org.junit.jupiter.api;
     requires java.compiler;
+    requires jdk.compiler;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
 
     exports dev.lukebemish.testingutils.framework.modulelayer;
 
     provides org.junit.platform.engine.TestEngine with dev.lukebemish.testingutils.framework.modulelayer.ModuleLayerEngine;
+    provides java.net.spi.URLStreamHandlerProvider with dev.lukebemish.testingutils.framework.modulelayer.internal.MemoryUrlStreamHandlerProvider;
+    provides javax.annotation.processing.Processor with dev.lukebemish.testingutils.framework.modulelayer.internal.LayerTestIndexProcessor;
 }
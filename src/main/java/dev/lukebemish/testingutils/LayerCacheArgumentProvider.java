@@ -0,0 +1,29 @@
+package dev.lukebemish.testingutils;
+
+import org.gradle.api.file.Directory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import java.util.List;
+
+public class LayerCacheArgumentProvider implements CommandLineArgumentProvider {
+    private static final String CACHE_DIRECTORY_PROPERTY = "dev.lukebemish.testingutils.framework.modulelayer.cache.directory";
+
+    private final Provider<Directory> cacheDirectory;
+
+    public LayerCacheArgumentProvider(Provider<Directory> cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    // The cache location is machine-specific and does not affect test results, so it is not an input
+    @Internal
+    public Provider<Directory> getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    @Override
+    public Iterable<String> asArguments() {
+        return List.of("-D" + CACHE_DIRECTORY_PROPERTY + "=" + cacheDirectory.get().getAsFile().getAbsolutePath());
+    }
+}
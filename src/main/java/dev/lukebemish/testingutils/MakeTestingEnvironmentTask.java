@@ -9,10 +9,13 @@
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
 import org.jspecify.annotations.Nullable;
 
 import javax.inject.Inject;
@@ -27,6 +30,10 @@
 import java.util.function.BiFunction;
 
 public abstract class MakeTestingEnvironmentTask extends DefaultTask {
+    private static final String PRECOMPILED_DIRECTORY = "layers";
+    private static final String PRECOMPILED_DIRECTORY_PROPERTY = "dev.lukebemish.testingutils.framework.modulelayer.precompiled.directory";
+    private static final String PRECOMPILE_OUTPUT_PROPERTY = "dev.lukebemish.testingutils.framework.modulelayer.precompile.output";
+
     @OutputDirectory
     abstract DirectoryProperty getOutputDirectory();
 
@@ -49,6 +56,9 @@ public abstract class MakeTestingEnvironmentTask extends DefaultTask {
     @Input
     public abstract Property<Boolean> getModular();
 
+    @Nested
+    public abstract ListProperty<JavaLauncher> getPrecompileLaunchers();
+
     @Inject
     public MakeTestingEnvironmentTask() {
         getModular().convention(false);
@@ -57,6 +67,9 @@ public MakeTestingEnvironmentTask() {
     @Inject
     protected abstract FileSystemOperations getFileSystemOperations();
 
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
     @TaskAction
     public void run() throws IOException {
         var outputPath = getOutputDirectory().get().getAsFile().toPath();
@@ -84,6 +97,10 @@ public FileVisitResult postVisitDirectory(Path directory, @Nullable IOException
         });
         var argFile = outputPath.resolve("args.txt");
         var args = new ArrayList<>(argsExceptLaunch().get());
+        var precompile = getModular().get() && !getPrecompileLaunchers().get().isEmpty();
+        if (precompile) {
+            args.add("-D" + PRECOMPILED_DIRECTORY_PROPERTY + "=" + PRECOMPILED_DIRECTORY);
+        }
         if (getModular().get()) {
             args.add("--module-path");
             args.add("libraries");
@@ -97,6 +114,19 @@ public FileVisitResult postVisitDirectory(Path directory, @Nullable IOException
             args.add("dev.lukebemish.testingutils.framework.Framework");
         }
         Files.writeString(argFile, String.join(" ", args));
+        if (precompile) {
+            for (var launcher : getPrecompileLaunchers().get()) {
+                var result = getExecOperations().exec(spec -> {
+                    spec.setExecutable(launcher.getExecutablePath().getAsFile());
+                    spec.setWorkingDir(outputPath.toFile());
+                    spec.args("-D" + PRECOMPILE_OUTPUT_PROPERTY + "=" + PRECOMPILED_DIRECTORY, "@args.txt");
+                    spec.setIgnoreExitValue(true);
+                });
+                if (result.getExitValue() != 0) {
+                    getLogger().warn("Precompiling layers with Java {} failed with exit code {}", launcher.getMetadata().getLanguageVersion(), result.getExitValue());
+                }
+            }
+        }
     }
 
     Provider<List<String>> argsExceptLaunch() {
@@ -9,6 +9,7 @@
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.testing.base.TestingExtension;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
@@ -26,6 +27,7 @@
 
 public class TestingUtilsPlugin implements Plugin<Settings> {
     private static final String NAMESPACE_URI = "https://schemas.lukebemish.dev/testingutils/0.1.0";
+    private static final String LAYER_ENTRY_PREFIX = "testingutils.layer.";
     private static final String IMPL_VERSION = Objects.requireNonNull(TestingUtilsPlugin.class.getPackage().getImplementationVersion());
 
     @SuppressWarnings("UnstableApiUsage")
@@ -37,7 +39,7 @@ public void apply(Settings settings) {
             spec.getParameters().getOutputFile().set(settings.getRootDir().toPath().resolve("build/testingUtils/source-directories.txt").toFile());
         });
         settings.getGradle().getLifecycle().beforeProject(project -> {
-            project.getExtensions().create("testingUtils", TestingUtilsProjectExtension.class);
+            project.getExtensions().create("testingUtils", TestingUtilsProjectExtension.class, extension);
             var writeSourceDirectories = project.getTasks().register("testingUtilsWriteSourceDirectories", WriteSourceDirectoriesTask.class);
             project.getPluginManager().withPlugin("java-base", applied -> {
                 project.afterEvaluate(p -> {
@@ -61,6 +63,9 @@ public void apply(Settings settings) {
                                 dependencies.getImplementation().add(
                                     depString
                                 );
+                                dependencies.getAnnotationProcessor().add(
+                                    depString
+                                );
                             });
                             jvmTestSuite.getTargets().configureEach(target -> {
                                 var singleTestsName = target.getTestTask().getName();
@@ -97,6 +102,7 @@ public void apply(Settings settings) {
                                                 idElement.setTextContent(projectPath + (projectPath.endsWith(":") ? "" : ":") + singleTestsName);
                                                 item.appendChild(idElement);
                                             }
+                                            addLayerElements(document);
                                             var transformer = TransformerFactory.newInstance().newTransformer();
 
                                             DOMSource source = new DOMSource(document);
@@ -119,6 +125,9 @@ public void apply(Settings settings) {
                                             reports.getJunitXml().getRequired().set(false);
                                         });
                                         test.getOutputs().file(outPathProperty);
+                                        test.getJvmArgumentProviders().add(new LayerCacheArgumentProvider(
+                                            p.getLayout().getBuildDirectory().dir("testingUtils/layer-cache")
+                                        ));
                                         test.finalizedBy(finalizerTask);
                                     }
                                 });
@@ -224,4 +233,26 @@ public void apply(Settings settings) {
             });
         });
     }
+
+    private static void addLayerElements(Document document) {
+        var reported = document.getElementsByTagNameNS("*", "reported");
+        for (int i = 0; i < reported.getLength(); i++) {
+            var event = (Element) reported.item(i);
+            var entries = event.getElementsByTagNameNS("*", "entry");
+            Element layer = null;
+            for (int j = 0; j < entries.getLength(); j++) {
+                var entry = (Element) entries.item(j);
+                var key = entry.getAttribute("key");
+                if (key.startsWith(LAYER_ENTRY_PREFIX)) {
+                    if (layer == null) {
+                        layer = document.createElementNS(NAMESPACE_URI, "testingutils:layer");
+                    }
+                    layer.setAttribute(key.substring(LAYER_ENTRY_PREFIX.length()), entry.getTextContent());
+                }
+            }
+            if (layer != null) {
+                event.appendChild(layer);
+            }
+        }
+    }
 }
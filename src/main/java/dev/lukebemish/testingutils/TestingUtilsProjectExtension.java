@@ -2,19 +2,31 @@
 
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
 
 import javax.inject.Inject;
+import java.util.List;
 
 public abstract class TestingUtilsProjectExtension {
+    private final TestingUtilsExtension settingsExtension;
+
     @Inject
-    public TestingUtilsProjectExtension() {}
+    public TestingUtilsProjectExtension(TestingUtilsExtension settingsExtension) {
+        this.settingsExtension = settingsExtension;
+    }
 
     @Inject
     protected abstract Project getProject();
 
+    @Inject
+    protected abstract JavaToolchainService getJavaToolchains();
+
     public TaskProvider<MakeTestingEnvironmentTask> makeTestingEnvironment(SourceSet sourceSet, Action<MakeTestingEnvironmentTask> action) {
         var implVersion = TestingUtilsPlugin.class.getPackage().getImplementationVersion();
         var depString = "dev.lukebemish.testingutils:framework";
@@ -22,6 +34,7 @@ public TaskProvider<MakeTestingEnvironmentTask> makeTestingEnvironment(SourceSet
             depString = depString + ":" + implVersion;
         }
         getProject().getDependencies().add(sourceSet.getImplementationConfigurationName(), depString);
+        getProject().getDependencies().add(sourceSet.getAnnotationProcessorConfigurationName(), depString);
         var makeTestEnvironment = getProject().getTasks().register("testingUtilsMakeTestEnvironment", MakeTestingEnvironmentTask.class, task -> {
             task.getOutputDirectory().set(
                 getProject().getRootDir().toPath()
@@ -30,6 +43,14 @@ public TaskProvider<MakeTestingEnvironmentTask> makeTestingEnvironment(SourceSet
                     .toFile());
             task.getClasspath().from(getProject().getConfigurations().getByName(sourceSet.getRuntimeClasspathConfigurationName()));
             task.getClasspath().from(getProject().getConfigurations().getByName(sourceSet.getRuntimeElementsConfigurationName()).getAllArtifacts().getFiles());
+            var platform = settingsExtension.getPlatform();
+            task.getPrecompileLaunchers().convention(platform.getEnabled().flatMap(enabled -> {
+                var launchers = getProject().getObjects().listProperty(JavaLauncher.class);
+                if (enabled) {
+                    platform.getJavaVersions().get().forEach(version -> launchers.addAll(precompileLauncher(version)));
+                }
+                return launchers;
+            }));
             action.execute(task);
         });
         var runEnv = getProject().getTasks().register("testingUtilsRunTestEnvironment", JavaExec.class);
@@ -51,4 +72,17 @@ public TaskProvider<MakeTestingEnvironmentTask> makeTestingEnvironment(SourceSet
         });
         return makeTestEnvironment;
     }
+
+    private Provider<List<JavaLauncher>> precompileLauncher(String version) {
+        var launcher = getJavaToolchains().launcherFor(spec -> spec.getLanguageVersion().set(JavaLanguageVersion.of(version)));
+        var logger = getProject().getLogger();
+        return getProject().getProviders().provider(() -> {
+            try {
+                return List.of(launcher.get());
+            } catch (RuntimeException e) {
+                logger.warn("Not precompiling layers with Java {}, as no toolchain for it could be found: {}", version, e.getMessage());
+                return List.of();
+            }
+        });
+    }
 }
@@ -0,0 +1,42 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+import java.time.Duration;
+
+public abstract class BenchmarkLayerMethods {
+    @LayerTest
+    LayerBuilder benchmarked() {
+        return LayerBuilder.create()
+            .withModule("benchmarks", module -> module
+                .test("benchmarks.BenchmarkedTests", """
+                    static Object retained;
+
+                    @Test
+                    void fast() {}
+
+                    @Test
+                    void slow() throws InterruptedException {
+                        Thread.sleep(5);
+                    }
+
+                    @Test
+                    long computing() {
+                        long sum = 0;
+                        for (int i = 0; i < 10_000_000; i++) {
+                            sum += i ^ (sum >>> 7);
+                        }
+                        return sum;
+                    }
+
+                    @Test
+                    void allocating() {
+                        retained = new byte[1024];
+                    }
+                    """)
+                .timeBudget("benchmarks.BenchmarkedTests#fast", Duration.ofMinutes(1))
+                .timeBudget("benchmarks.BenchmarkedTests#slow", Duration.ofMillis(1))
+                .allocationBudget("benchmarks.BenchmarkedTests#allocating", 16));
+    }
+}
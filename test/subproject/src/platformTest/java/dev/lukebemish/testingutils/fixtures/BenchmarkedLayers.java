@@ -0,0 +1,6 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBenchmark;
+
+@LayerBenchmark(warmupIterations = 5, iterations = 20)
+public class BenchmarkedLayers extends BenchmarkLayerMethods {}
@@ -0,0 +1,44 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+import java.time.Duration;
+
+public class BudgetedLayers {
+    @LayerTest
+    LayerBuilder budgeted() {
+        return LayerBuilder.create()
+            .withModule("budgets", module -> module
+                .test("budgets.BudgetedTests", """
+                    static Object retained;
+
+                    @Test
+                    void slow() throws InterruptedException {
+                        Thread.sleep(200);
+                    }
+
+                    @Test
+                    void allocating() {
+                        retained = new byte[1 << 20];
+                    }
+
+                    @Test
+                    void withinBudget() {}
+                    """)
+                .timeBudget("budgets.BudgetedTests#slow", Duration.ofMillis(50))
+                .allocationBudget("budgets.BudgetedTests#allocating", 1024)
+                .timeBudget("budgets.BudgetedTests#withinBudget", Duration.ofMinutes(1)));
+    }
+
+    @LayerTest
+    LayerBuilder misnamed() {
+        return LayerBuilder.create()
+            .withModule("budgets.misnamed", module -> module
+                .test("budgets.misnamed.MisnamedTests", """
+                    @Test
+                    void passes() {}
+                    """)
+                .timeBudget("budgets.misnamed.MisnamedTests#passse", Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,76 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+public class CacheCountingLayers {
+    // Changes the source of one of the two modules in partlyCached
+    public static volatile int revision;
+
+    @LayerTest
+    LayerBuilder batchedA() {
+        return LayerBuilder.create()
+            .withModule("cache.a", module -> module
+                .test("cache.a.ATests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+
+    @LayerTest
+    LayerBuilder batchedB() {
+        return LayerBuilder.create()
+            .withModule("cache.b", module -> module
+                .test("cache.b.BTests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+
+    // Shares a module name with batchedA, so is compiled on its own
+    @LayerTest
+    LayerBuilder unbatched() {
+        return LayerBuilder.create()
+            .withModule("cache.a", module -> module
+                .test("cache.a.OtherATests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+
+    @LayerTest
+    LayerBuilder child() {
+        return LayerBuilder.create()
+            .withModule("cache.parent", module -> module
+                .exports("cache.parent")
+                .java("cache.parent.Parent", """
+                    public class Parent {}
+                    """))
+            .child()
+            .withModule("cache.child", module -> module
+                .requires("cache.parent")
+                .test("cache.child.ChildTests", """
+                    @Test
+                    void passes() {
+                        new cache.parent.Parent();
+                    }
+                    """));
+    }
+
+    @LayerTest
+    LayerBuilder partlyCached() {
+        return LayerBuilder.create()
+            .withModule("cache.unchanged", module -> module
+                .test("cache.unchanged.UnchangedTests", """
+                    @Test
+                    void passes() {}
+                    """))
+            .withModule("cache.changed", module -> module
+                .test("cache.changed.ChangedTests", """
+                    @Test
+                    void passes() {
+                        assertEquals(%d, %d);
+                    }
+                    """.formatted(revision, revision)));
+    }
+}
@@ -0,0 +1,91 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+
+public class ClassFileLayers {
+    private static final byte[] GREETING;
+    private static final byte[] MODULE_INFO;
+
+    static {
+        try {
+            var directory = Files.createTempDirectory("class-file-layers");
+            try {
+                var moduleInfo = Files.writeString(directory.resolve("module-info.java"), "module prebuilt { exports greeting; }");
+                var greeting = Files.createDirectories(directory.resolve("greeting")).resolve("Greeting.java");
+                Files.writeString(greeting, "package greeting; public class Greeting { public static String greet() { return \"hello\"; } }");
+                var out = directory.resolve("out");
+                var exitCode = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", out.toString(), moduleInfo.toString(), greeting.toString());
+                if (exitCode != 0) {
+                    throw new IllegalStateException("Could not compile fixture classes");
+                }
+                GREETING = Files.readAllBytes(out.resolve("greeting/Greeting.class"));
+                MODULE_INFO = Files.readAllBytes(out.resolve("module-info.class"));
+            } finally {
+                try (var files = Files.walk(directory)) {
+                    for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @LayerTest
+    LayerBuilder classFileOnly() {
+        return LayerBuilder.create()
+            .withModule("greeting", module -> module
+                .exports("greeting")
+                .classFile("greeting.Greeting", GREETING))
+            .child()
+            .withModule("greeting.user", module -> module
+                .requires("greeting")
+                .test("greeting.user.GreetingTests", """
+                    @Test
+                    void greets() {
+                        assertEquals("hello", greeting.Greeting.greet());
+                    }
+                    """));
+    }
+
+    @LayerTest
+    LayerBuilder prebuiltModuleInfo() {
+        return LayerBuilder.create()
+            .withModule("prebuilt", module -> module
+                .moduleInfo(MODULE_INFO)
+                .classFile("greeting.Greeting", GREETING))
+            .child()
+            .withModule("prebuilt.user", module -> module
+                .requires("prebuilt")
+                .test("prebuilt.user.GreetingTests", """
+                    @Test
+                    void greets() {
+                        assertEquals("hello", greeting.Greeting.greet());
+                    }
+                    """));
+    }
+
+    @LayerTest
+    LayerBuilder mixed() {
+        return LayerBuilder.create()
+            .withModule("greeting", module -> module
+                .exports("greeting")
+                .classFile("greeting.Greeting", GREETING))
+            .withModule("greeting.user", module -> module
+                .requires("greeting")
+                .test("greeting.user.GreetingTests", """
+                    @Test
+                    void greets() {
+                        assertEquals("hello", greeting.Greeting.greet());
+                    }
+                    """));
+    }
+}
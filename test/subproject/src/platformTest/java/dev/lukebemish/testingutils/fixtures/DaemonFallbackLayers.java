@@ -0,0 +1,16 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+public class DaemonFallbackLayers {
+    @LayerTest
+    LayerBuilder compiled() {
+        return LayerBuilder.create()
+            .withModule("fallback", module -> module
+                .test("fallback.FallbackTests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+}
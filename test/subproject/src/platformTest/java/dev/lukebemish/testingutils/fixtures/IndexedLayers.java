@@ -0,0 +1,16 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+public class IndexedLayers {
+    @LayerTest
+    LayerBuilder indexed() {
+        return LayerBuilder.create()
+            .withModule("indexed", module -> module
+                .test("indexed.IndexedTests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+}
@@ -0,0 +1,3 @@
+package dev.lukebemish.testingutils.fixtures;
+
+public class InheritingIndexedLayers extends IndexedLayers {}
@@ -0,0 +1,36 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+import org.junit.jupiter.api.Named;
+
+import java.util.List;
+
+public class LeakCheckedLayers {
+    @LayerTest
+    LayerBuilder single() {
+        return LayerBuilder.create()
+            .withModule("leaks.single", module -> module
+                .test("leaks.single.SingleTests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+
+    @LayerTest
+    List<Named<LayerBuilder>> variants() {
+        return List.of(
+            Named.of("first", variant("leaks.first")),
+            Named.of("second", variant("leaks.second"))
+        );
+    }
+
+    private static LayerBuilder variant(String module) {
+        return LayerBuilder.create()
+            .withModule(module, builder -> builder
+                .test(module + ".VariantTests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+}
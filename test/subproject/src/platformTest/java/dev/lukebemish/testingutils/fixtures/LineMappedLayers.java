@@ -0,0 +1,23 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+public class LineMappedLayers {
+    // The line of the call to fail() below
+    public static final int FAILING_LINE = 19;
+
+    @LayerTest
+    LayerBuilder mapped() {
+        return LayerBuilder.create()
+            .withModule("mapped", module -> module
+                .test("mapped.MappedTests", """
+                    @Test
+                    void fails() {
+                        int unused = 0;
+
+                        fail();
+                    }
+                    """));
+    }
+}
@@ -0,0 +1,35 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+public class PrefetchedLayers {
+    @LayerTest
+    LayerBuilder first() {
+        return layer("prefetch.first");
+    }
+
+    @LayerTest
+    LayerBuilder broken() {
+        throw new IllegalStateException("Never builds a layer");
+    }
+
+    @LayerTest
+    LayerBuilder second() {
+        return layer("prefetch.second");
+    }
+
+    @LayerTest
+    LayerBuilder third() {
+        return layer("prefetch.third");
+    }
+
+    private static LayerBuilder layer(String module) {
+        return LayerBuilder.create()
+            .withModule(module, builder -> builder
+                .test(module + ".PrefetchedTests", """
+                    @Test
+                    void passes() {}
+                    """));
+    }
+}
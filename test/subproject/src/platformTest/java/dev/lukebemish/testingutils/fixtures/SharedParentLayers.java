@@ -0,0 +1,41 @@
+package dev.lukebemish.testingutils.fixtures;
+
+import dev.lukebemish.testingutils.framework.modulelayer.LayerBuilder;
+import dev.lukebemish.testingutils.framework.modulelayer.LayerTest;
+
+public class SharedParentLayers {
+    public static volatile boolean broken;
+
+    @LayerTest
+    LayerBuilder first() {
+        return parent().child()
+            .withModule("shared.first", module -> module
+                .requires("shared.parent")
+                .test("shared.first.FirstTests", """
+                    @Test
+                    void recordsParent() {
+                        System.getProperties().put("shared.first", shared.parent.Parent.class);
+                    }
+                    """));
+    }
+
+    @LayerTest
+    LayerBuilder second() {
+        return parent().child()
+            .withModule("shared.second", module -> module
+                .requires("shared.parent")
+                .test("shared.second.SecondTests", """
+                    @Test
+                    void recordsParent() {
+                        System.getProperties().put("shared.second", shared.parent.Parent.class);
+                    }
+                    """));
+    }
+
+    private static LayerBuilder parent() {
+        return LayerBuilder.create()
+            .withModule("shared.parent", module -> module
+                .exports("shared.parent")
+                .java("shared.parent.Parent", broken ? "public class Parent { int x = ; }" : "public class Parent {}"));
+    }
+}
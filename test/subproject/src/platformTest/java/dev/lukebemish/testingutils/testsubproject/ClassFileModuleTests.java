@@ -0,0 +1,37 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.ClassFileLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.testkit.engine.EngineExecutionResults;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassFileModuleTests {
+    @Test
+    void definesClassFileOnlyModule() {
+        assertPassed("classFileOnly");
+    }
+
+    @Test
+    void definesPrebuiltModuleInfoModule() {
+        assertPassed("prebuiltModuleInfo");
+    }
+
+    @Test
+    void compilesAgainstClassFileOnlyModule() {
+        assertPassed("mixed");
+    }
+
+    private static void assertPassed(String layerMethod) {
+        EngineExecutionResults results = EngineRuns.run(ClassFileLayers.class, Map.of());
+        var segment = "[method:" + layerMethod + "()]";
+        assertEquals(0, results.allEvents().failed().stream()
+            .filter(event -> event.getTestDescriptor().getUniqueId().toString().contains(segment))
+            .count());
+        assertEquals(1, results.testEvents().succeeded().stream()
+            .filter(event -> event.getTestDescriptor().getUniqueId().toString().contains(segment))
+            .count());
+    }
+}
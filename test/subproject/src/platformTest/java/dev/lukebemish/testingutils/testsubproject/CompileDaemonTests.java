@@ -0,0 +1,25 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.DaemonFallbackLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileDaemonTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void compilesInProcessWhenDaemonCannotStart() throws IOException {
+        var blocked = Files.createFile(directory.resolve("blocked"));
+        var results = EngineRuns.run(DaemonFallbackLayers.class, Map.of("compile.daemon", blocked.resolve("daemon.sock").toString()));
+        assertEquals(1, results.testEvents().succeeded().count());
+        assertEquals(0, results.containerEvents().failed().count());
+    }
+}
@@ -0,0 +1,45 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.testkit.engine.EngineExecutionResults;
+import org.junit.platform.testkit.engine.EngineTestKit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+final class EngineRuns {
+    private static final String PREFIX = "dev.lukebemish.testingutils.framework.modulelayer.";
+
+    private EngineRuns() {}
+
+    static EngineExecutionResults run(Class<?> fixture, Map<String, String> parameters) {
+        return run(selectClass(fixture), parameters);
+    }
+
+    static EngineExecutionResults run(DiscoverySelector selector, Map<String, String> parameters) {
+        var prefixed = new HashMap<String, String>();
+        parameters.forEach((key, value) -> prefixed.put(PREFIX + key, value));
+        return EngineTestKit.engine("module-layer-framework")
+            .selectors(selector)
+            .configurationParameters(prefixed)
+            .execute();
+    }
+
+    static List<Map<String, String>> reportEntries(EngineExecutionResults results) {
+        return results.allEvents().reportingEntryPublished().stream()
+            .map(event -> event.getRequiredPayload(ReportEntry.class).getKeyValuePairs())
+            .toList();
+    }
+
+    static Optional<String> reportEntry(EngineExecutionResults results, String key) {
+        return reportEntries(results).stream()
+            .filter(entries -> entries.containsKey(key))
+            .map(entries -> entries.get(key))
+            .findFirst();
+    }
+}
@@ -0,0 +1,45 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.BenchmarkedLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.engine.reporting.ReportEntry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerBenchmarkTests {
+    @Test
+    void benchmarksInheritedLayersOfAnnotatedClass() {
+        var results = EngineRuns.run(BenchmarkedLayers.class, Map.of());
+        assertEquals(List.of("computing()", "fast()"), results.testEvents().succeeded().stream()
+            .map(event -> event.getTestDescriptor().getDisplayName())
+            .sorted()
+            .toList());
+        assertEquals(Optional.of("20"), EngineRuns.reportEntry(results, "testingutils.benchmark.iterations"));
+    }
+
+    @Test
+    void budgetsApplyToMeasuredIterations() {
+        var results = EngineRuns.run(BenchmarkedLayers.class, Map.of());
+        var failed = results.testEvents().failed().stream()
+            .map(event -> event.getTestDescriptor().getDisplayName())
+            .sorted()
+            .toList();
+        assertEquals(List.of("allocating()", "slow()"), failed);
+    }
+
+    @Test
+    void measuresKernelsThatOnlyReturnAValue() {
+        var results = EngineRuns.run(BenchmarkedLayers.class, Map.of());
+        var entries = results.allEvents().reportingEntryPublished().stream()
+            .filter(event -> event.getTestDescriptor().getDisplayName().equals("computing()"))
+            .map(event -> event.getRequiredPayload(ReportEntry.class).getKeyValuePairs())
+            .findFirst()
+            .orElseThrow();
+        var median = Long.parseLong(entries.get("testingutils.benchmark.p50-nanos"));
+        assertTrue(median > 100_000, () -> "Median of " + median + " ns is too short for ten million iterations");
+    }
+}
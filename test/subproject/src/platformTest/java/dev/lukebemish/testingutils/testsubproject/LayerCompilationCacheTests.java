@@ -0,0 +1,90 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.CacheCountingLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.testkit.engine.EngineExecutionResults;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerCompilationCacheTests {
+    @TempDir
+    Path cache;
+
+    @TempDir
+    Path modules;
+
+    @TempDir
+    Path precompiled;
+
+    @Test
+    void countsEachLayerOnce() {
+        CacheCountingLayers.revision = 0;
+        assertCounted(0, 6);
+        assertCounted(6, 0);
+        // Reuses the unchanged module of partlyCached, but still misses on the layer as a whole
+        CacheCountingLayers.revision = 1;
+        assertCounted(5, 1);
+    }
+
+    @Test
+    void ignoresModulesNoLayerRequires() throws IOException {
+        CacheCountingLayers.revision = 0;
+        var modulePath = System.getProperty("jdk.module.path");
+        var unrelated = modules.resolve("unrelated.jar");
+        System.setProperty("jdk.module.path", modulePath + File.pathSeparator + unrelated);
+        try {
+            writeJar(unrelated, "first");
+            run();
+            writeJar(unrelated, "second");
+            assertCounted(6, 0);
+        } finally {
+            System.setProperty("jdk.module.path", modulePath);
+        }
+    }
+
+    @Test
+    void readsLayersPrecompiledByAnotherRun() {
+        CacheCountingLayers.revision = 0;
+        var results = EngineRuns.run(CacheCountingLayers.class, Map.of("precompile.output", precompiled.toString()));
+        assertEquals(0, results.testEvents().failed().count());
+        assertCounted(Map.of("precompiled.directory", precompiled.toString()), 6, 0);
+        // A layer whose sources no longer match what was precompiled is compiled again
+        CacheCountingLayers.revision = 1;
+        assertCounted(Map.of("precompiled.directory", precompiled.toString()), 5, 1);
+    }
+
+    private static void writeJar(Path jar, String contents) throws IOException {
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("unrelated/contents.txt"));
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private EngineExecutionResults run() {
+        return EngineRuns.run(CacheCountingLayers.class, Map.of("cache.directory", cache.toString()));
+    }
+
+    private void assertCounted(long hits, long misses) {
+        assertCounted(Map.of("cache.directory", cache.toString()), hits, misses);
+    }
+
+    private static void assertCounted(Map<String, String> configuration, long hits, long misses) {
+        var results = EngineRuns.run(CacheCountingLayers.class, configuration);
+        assertEquals(0, results.testEvents().failed().count());
+        assertEquals(6, results.testEvents().succeeded().count());
+        assertEquals(Optional.of(Long.toString(hits)), EngineRuns.reportEntry(results, "testingutils.cache.hits"));
+        assertEquals(Optional.of(Long.toString(misses)), EngineRuns.reportEntry(results, "testingutils.cache.misses"));
+    }
+}
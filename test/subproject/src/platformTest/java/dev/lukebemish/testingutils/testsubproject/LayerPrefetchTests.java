@@ -0,0 +1,27 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.PrefetchedLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.testkit.engine.EngineExecutionResults;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerPrefetchTests {
+    @Test
+    void prefetchedLayersRunInOrder() {
+        var unprefetched = EngineRuns.run(PrefetchedLayers.class, Map.of("execution.prefetch.depth", "0"));
+        var prefetched = EngineRuns.run(PrefetchedLayers.class, Map.of("execution.prefetch.depth", "2"));
+        assertEquals(3, prefetched.testEvents().succeeded().count());
+        assertEquals(1, prefetched.containerEvents().failed().count());
+        assertEquals(finished(unprefetched), finished(prefetched));
+    }
+
+    private static List<String> finished(EngineExecutionResults results) {
+        return results.allEvents().finished().stream()
+            .map(event -> event.getTestDescriptor().getUniqueId().toString())
+            .toList();
+    }
+}
@@ -0,0 +1,67 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.IndexedLayers;
+import dev.lukebemish.testingutils.fixtures.InheritingIndexedLayers;
+import dev.lukebemish.testingutils.fixtures.LineMappedLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.engine.TestExecutionResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClasspathRoots;
+
+public class LayerTestIndexTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsIndexFromJarRoot() throws IOException {
+        var jar = directory.resolve("indexed.jar");
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("META-INF/testingutils/layer-tests/" + IndexedLayers.class.getName()));
+            out.closeEntry();
+        }
+        var results = EngineRuns.run(selectClasspathRoots(Set.of(jar)).get(0), Map.of());
+        assertEquals(1, results.testEvents().succeeded().count());
+    }
+
+    @Test
+    void findsUnindexedSubclassesInIndexedRoot() throws IOException {
+        var root = directory.resolve("classes");
+        var index = root.resolve("META-INF/testingutils/layer-tests/" + IndexedLayers.class.getName());
+        Files.createDirectories(index.getParent());
+        Files.createFile(index);
+        for (var type : List.of(IndexedLayers.class, InheritingIndexedLayers.class)) {
+            var file = root.resolve(type.getName().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParent());
+            try (var in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+                Files.copy(Objects.requireNonNull(in), file);
+            }
+        }
+        var results = EngineRuns.run(selectClasspathRoots(Set.of(root)).get(0), Map.of());
+        assertEquals(2, results.testEvents().succeeded().count());
+    }
+
+    @Test
+    void mapsGeneratedLinesToSource() {
+        var results = EngineRuns.run(LineMappedLayers.class, Map.of());
+        var failure = results.testEvents().failed().stream()
+            .map(event -> event.getRequiredPayload(TestExecutionResult.class).getThrowable().orElseThrow())
+            .findFirst()
+            .orElseThrow();
+        assertTrue(Arrays.stream(failure.getStackTrace()).anyMatch(frame ->
+            "LineMappedLayers.java".equals(frame.getFileName()) && frame.getLineNumber() == LineMappedLayers.FAILING_LINE
+        ), () -> Arrays.toString(failure.getStackTrace()));
+    }
+}
@@ -0,0 +1,34 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.LeakCheckedLayers;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeakDetectorTests {
+    @Test
+    void closedLayersAndBuildersAreReleased() {
+        assertReleased("0");
+    }
+
+    @Test
+    void prefetchedLayersAndBuildersAreReleased() {
+        assertReleased("2");
+    }
+
+    private static void assertReleased(String prefetchDepth) {
+        var results = EngineRuns.run(LeakCheckedLayers.class, Map.of(
+            "leaks.detection", "true",
+            "execution.prefetch.depth", prefetchDepth
+        ));
+        assertEquals(3, results.testEvents().succeeded().count());
+        var leaks = EngineRuns.reportEntries(results).stream()
+            .filter(entries -> entries.containsKey("testingutils.leak"))
+            .map(entries -> entries.get("testingutils.leak"))
+            .toList();
+        assertEquals(List.of(), leaks);
+    }
+}
@@ -0,0 +1,41 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.SharedParentLayers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.engine.TestExecutionResult;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedLayersTests {
+    @AfterEach
+    void reset() {
+        SharedParentLayers.broken = false;
+        System.getProperties().remove("shared.first");
+        System.getProperties().remove("shared.second");
+    }
+
+    @Test
+    void identicalParentsAreDefinedOnce() {
+        var results = EngineRuns.run(SharedParentLayers.class, Map.of());
+        assertEquals(2, results.testEvents().succeeded().count());
+        var first = System.getProperties().get("shared.first");
+        assertNotNull(first);
+        assertSame(first, System.getProperties().get("shared.second"));
+    }
+
+    @Test
+    void eachChildGetsItsOwnFailure() {
+        SharedParentLayers.broken = true;
+        var results = EngineRuns.run(SharedParentLayers.class, Map.of());
+        var failures = results.containerEvents().failed().stream()
+            .map(event -> event.getRequiredPayload(TestExecutionResult.class).getThrowable().orElseThrow())
+            .toList();
+        assertEquals(2, failures.size());
+        assertNotSame(failures.get(0), failures.get(1));
+        assertNotNull(failures.get(0).getCause());
+        assertSame(failures.get(0).getCause(), failures.get(1).getCause());
+    }
+}
@@ -0,0 +1,37 @@
+package dev.lukebemish.testingutils.testsubproject;
+
+import dev.lukebemish.testingutils.fixtures.BudgetedLayers;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.engine.TestExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBudgetTests {
+    @Test
+    void testsOverBudgetFail() {
+        var results = EngineRuns.run(BudgetedLayers.class, Map.of());
+        var failed = results.testEvents().failed().stream()
+            .map(event -> event.getTestDescriptor().getDisplayName())
+            .sorted()
+            .toList();
+        assertEquals(List.of("allocating()", "slow()"), failed);
+        assertEquals(List.of("withinBudget()"), results.testEvents().succeeded().stream()
+            .map(event -> event.getTestDescriptor().getDisplayName())
+            .toList());
+    }
+
+    @Test
+    void budgetsMatchingNoTestAreRejected() {
+        var results = EngineRuns.run(BudgetedLayers.class, Map.of());
+        var failure = results.containerEvents().failed().stream()
+            .map(event -> event.getRequiredPayload(TestExecutionResult.class).getThrowable().orElseThrow())
+            .findFirst()
+            .orElseThrow();
+        assertInstanceOf(IllegalArgumentException.class, failure);
+        assertTrue(failure.getMessage().contains("budgets.misnamed.MisnamedTests#passse"), failure.getMessage());
+        assertTrue(failure.getMessage().contains("module budgets.misnamed"), failure.getMessage());
+    }
+}